@@ -0,0 +1,152 @@
+package chip.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chip.ChipException;
+import chip.command.Parser;
+import chip.storage.Storage;
+import chip.storage.SyncPolicy;
+import chip.task.TaskList;
+import chip.ui.ResponseSink;
+
+/**
+ * Measures {@link Parser#parse} over a repeating stream of mixed commands against a journaled
+ * storage. Each block of commands adds and deletes the same number of tasks, so the list keeps
+ * its size for the whole run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ParserBenchmark {
+
+    // Constants
+    private static final int BLOCK_COUNT = 100;
+    private static final SyncPolicy SYNC_POLICY = new SyncPolicy(1024, 1000);
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private Path directory;
+    private TaskList tasks;
+    private Storage storage;
+    private CountingUi ui;
+    private String[] commands;
+    private int next;
+
+    /**
+     * Writes the data file, loads it and builds the command stream.
+     *
+     * @throws IOException if the temporary directory cannot be created
+     * @throws ChipException if the data file cannot be written or loaded
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ChipException {
+        directory = Files.createTempDirectory("chip-parser-benchmark");
+        Path file = directory.resolve("chip.txt");
+        TaskFileGenerator.writeFile(file, size, 0.01, TaskFileGenerator.DEFAULT_SEED);
+
+        storage = new Storage(file.toString(), true, SYNC_POLICY);
+        tasks = new TaskList(storage.load());
+        ui = new CountingUi();
+        commands = buildCommands(new Random(TaskFileGenerator.DEFAULT_SEED));
+    }
+
+    /**
+     * Closes the storage and deletes the temporary files.
+     *
+     * @throws IOException if a file cannot be deleted
+     * @throws ChipException if the storage cannot be closed
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, ChipException {
+        storage.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public long parseMixedCommand() throws ChipException {
+        Parser.parse(commands[next], tasks, ui, storage);
+        next = (next + 1) % commands.length;
+        return ui.count;
+    }
+
+    @Benchmark
+    public int parseUnknownCommand() {
+        try {
+            Parser.parse("lsit", tasks, ui, storage);
+            return 0;
+        } catch (ChipException e) {
+            return e.getMessage().length();
+        }
+    }
+
+    /**
+     * Builds blocks of commands that add three tasks, search, mark and unmark, then delete the
+     * three added tasks again.
+     */
+    private String[] buildCommands(Random random) {
+        ArrayList<String> stream = new ArrayList<>();
+        for (int i = 0; i < BLOCK_COUNT; i++) {
+            int target = 1 + random.nextInt(size);
+            String date = TaskFileGenerator.randomDate(random).toLocalDate().toString();
+
+            stream.add("todo " + TaskFileGenerator.randomDescription(random, false));
+            stream.add("find " + TaskFileGenerator.KEYWORD);
+            stream.add("mark " + target);
+            stream.add("deadline " + TaskFileGenerator.randomDescription(random, false) + " /by " + date + " 2359");
+            stream.add("unmark " + target);
+            stream.add("event " + TaskFileGenerator.randomDescription(random, false)
+                    + " /from " + date + " 0900 /to " + date + " 1000");
+            stream.add("on " + date);
+            stream.add("delete " + (size + 3));
+            stream.add("delete " + (size + 2));
+            stream.add("delete " + (size + 1));
+        }
+        return stream.toArray(new String[0]);
+    }
+
+    /**
+     * Discards output but counts messages, so the work of producing them is not optimised away.
+     */
+    private static class CountingUi implements ResponseSink {
+        private long count;
+
+        @Override
+        public void showMessage(String message) {
+            count += message.length();
+        }
+
+        @Override
+        public void showError(String message) {
+            count += message.length();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package chip.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chip.ChipException;
+import chip.storage.Storage;
+import chip.task.Task;
+
+/**
+ * Measures loading and saving a whole data file as the number of tasks grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StorageBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private Path directory;
+    private ArrayList<Task> tasks;
+    private Storage loadStorage;
+    private Storage saveStorage;
+
+    /**
+     * Writes the data file to load and prepares a second file to save into.
+     *
+     * @throws IOException if the temporary directory cannot be created
+     * @throws ChipException if the data file cannot be written
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ChipException {
+        directory = Files.createTempDirectory("chip-storage-benchmark");
+        tasks = TaskFileGenerator.generate(size, 0, TaskFileGenerator.DEFAULT_SEED);
+
+        Path loadFile = directory.resolve("load.txt");
+        loadStorage = new Storage(loadFile.toString());
+        loadStorage.save(tasks);
+        saveStorage = new Storage(directory.resolve("save.txt").toString());
+    }
+
+    /**
+     * Deletes the temporary files.
+     *
+     * @throws IOException if a file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public ArrayList<Task> load() throws ChipException {
+        return loadStorage.load();
+    }
+
+    @Benchmark
+    public void save() throws ChipException {
+        saveStorage.save(tasks);
+    }
+}
@@ -0,0 +1,147 @@
+package chip.benchmark;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Random;
+
+import chip.ChipException;
+import chip.storage.Storage;
+import chip.task.Deadline;
+import chip.task.Event;
+import chip.task.Task;
+import chip.task.Todo;
+
+/**
+ * Generates synthetic task lists and data files for benchmarks.
+ * The same count, hit ratio and seed always produce the same tasks, so results can be compared
+ * between commits.
+ *
+ * <p>Usage: {@code TaskFileGenerator <file> <count> [hitRatio] [seed]}
+ */
+public class TaskFileGenerator {
+
+    /** Word placed in a fraction of the descriptions, so searches for it hit that fraction */
+    public static final String KEYWORD = "zephyr";
+    /** Seed used when none is given */
+    public static final long DEFAULT_SEED = 42L;
+
+    // Constants
+    private static final String[] WORDS = {
+        "read", "book", "submit", "report", "buy", "groceries", "call", "mom", "team", "meeting",
+        "review", "code", "project", "deadline", "lecture", "tutorial", "quiz", "assignment", "gym",
+        "dinner", "plan", "trip", "pay", "bills", "clean", "room", "email", "prof", "update", "notes"
+    };
+    private static final int MIN_WORDS = 2;
+    private static final int MAX_WORDS = 6;
+    private static final double DEADLINE_RATIO = 0.25;
+    private static final double EVENT_RATIO = 0.15;
+    private static final double DONE_RATIO = 0.3;
+    private static final LocalDateTime BASE_DATE = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int DATE_RANGE_MINUTES = 2 * 365 * 24 * 60;
+    private static final int MAX_EVENT_MINUTES = 3 * 24 * 60;
+    private static final double DEFAULT_HIT_RATIO = 0.01;
+
+    private TaskFileGenerator() {
+    }
+
+    /**
+     * Generates a list of todos, deadlines and events with random descriptions and dates.
+     *
+     * @param count the number of tasks
+     * @param hitRatio the fraction of descriptions that contain {@link #KEYWORD}
+     * @param seed the random seed
+     * @return the generated tasks
+     */
+    public static ArrayList<Task> generate(int count, double hitRatio, long seed) {
+        assert count >= 0 : "Task count cannot be negative";
+        assert hitRatio >= 0 && hitRatio <= 1 : "Hit ratio must be between 0 and 1";
+
+        Random random = new Random(seed);
+        ArrayList<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String description = randomDescription(random, random.nextDouble() < hitRatio);
+            double type = random.nextDouble();
+            Task task;
+            if (type < DEADLINE_RATIO) {
+                task = new Deadline(description, randomDate(random));
+            } else if (type < DEADLINE_RATIO + EVENT_RATIO) {
+                LocalDateTime from = randomDate(random);
+                task = new Event(description, from, from.plusMinutes(1 + random.nextInt(MAX_EVENT_MINUTES)));
+            } else {
+                task = new Todo(description);
+            }
+            if (random.nextDouble() < DONE_RATIO) {
+                task.markAsDone();
+            }
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    /**
+     * Generates tasks and saves them to a data file in the text format.
+     *
+     * @param path the file to write
+     * @param count the number of tasks
+     * @param hitRatio the fraction of descriptions that contain {@link #KEYWORD}
+     * @param seed the random seed
+     * @throws ChipException if the file cannot be written
+     */
+    public static void writeFile(Path path, int count, double hitRatio, long seed) throws ChipException {
+        Storage storage = new Storage(path.toString());
+        storage.save(generate(count, hitRatio, seed));
+        storage.close();
+    }
+
+    /**
+     * Writes a synthetic data file.
+     *
+     * @param args the file path, the task count, and optionally the hit ratio and seed
+     * @throws ChipException if the file cannot be written
+     */
+    public static void main(String[] args) throws ChipException {
+        if (args.length < 2) {
+            System.err.println("Usage: TaskFileGenerator <file> <count> [hitRatio] [seed]");
+            System.exit(1);
+        }
+        Path path = Paths.get(args[0]);
+        int count = Integer.parseInt(args[1]);
+        double hitRatio = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_HIT_RATIO;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_SEED;
+
+        writeFile(path, count, hitRatio, seed);
+        System.out.println("Wrote " + count + " tasks to " + path);
+    }
+
+    /**
+     * Returns a random date and time on a whole minute within the benchmark date range.
+     *
+     * @param random the random source
+     * @return the date and time
+     */
+    static LocalDateTime randomDate(Random random) {
+        return BASE_DATE.plusMinutes(random.nextInt(DATE_RANGE_MINUTES));
+    }
+
+    /**
+     * Returns a random description made of words from the vocabulary.
+     *
+     * @param random the random source
+     * @param hasKeyword whether to include {@link #KEYWORD}
+     * @return the description
+     */
+    static String randomDescription(Random random, boolean hasKeyword) {
+        int wordCount = MIN_WORDS + random.nextInt(MAX_WORDS - MIN_WORDS + 1);
+        int keywordPosition = hasKeyword ? random.nextInt(wordCount) : -1;
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < wordCount; i++) {
+            if (i > 0) {
+                description.append(' ');
+            }
+            description.append(i == keywordPosition ? KEYWORD : WORDS[random.nextInt(WORDS.length)]);
+        }
+        return description.toString();
+    }
+}
@@ -0,0 +1,128 @@
+package chip.benchmark;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Random;
+
+import chip.ChipException;
+import chip.storage.Storage;
+import chip.task.Deadline;
+import chip.task.Event;
+import chip.task.Task;
+import chip.task.TaskList;
+import chip.task.Todo;
+
+/**
+ * Measures the heap taken by a loaded task list, in bytes per task.
+ *
+ * <p>JMH measures time, not retained memory, so this is a plain program: it saves tasks to a data
+ * file, loads them into a {@link TaskList} and compares the used heap after full garbage
+ * collections before and after loading, and again after every task has been displayed once, which
+ * fills the cached display strings. It reports two workloads, one where nearly every
+ * description is different and one made of a few recurring descriptions such as "standup".
+ * Run it with the same heap settings to compare commits.
+ *
+ * <p>Usage: {@code TaskFootprintBenchmark [count] [distinctDescriptions]}
+ */
+public class TaskFootprintBenchmark {
+
+    // Constants
+    private static final int DEFAULT_COUNT = 1_000_000;
+    private static final int DEFAULT_DISTINCT_DESCRIPTIONS = 200;
+    private static final int GC_ROUNDS = 5;
+    private static final long GC_PAUSE_MILLIS = 50;
+
+    private TaskFootprintBenchmark() {
+    }
+
+    /**
+     * Prints the bytes per task for both workloads.
+     *
+     * @param args the task count and the number of recurring descriptions, both optional
+     * @throws ChipException if the data file cannot be written or read
+     * @throws IOException if the temporary data file cannot be created
+     * @throws InterruptedException if interrupted while waiting for garbage collection
+     */
+    public static void main(String[] args) throws ChipException, IOException, InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_COUNT;
+        int distinct = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_DISTINCT_DESCRIPTIONS;
+
+        ArrayList<Task> unique = TaskFileGenerator.generate(count, 0, TaskFileGenerator.DEFAULT_SEED);
+        report("unique descriptions", measure(unique));
+        unique = null;
+
+        ArrayList<Task> recurring = generateRecurring(count, distinct, TaskFileGenerator.DEFAULT_SEED);
+        report(distinct + " recurring descriptions", measure(recurring));
+    }
+
+    private static void report(String workload, double[] bytesPerTask) {
+        System.out.printf("%s: %.1f bytes per task loaded, %.1f after listing%n", workload,
+                bytesPerTask[0], bytesPerTask[1]);
+    }
+
+    /**
+     * Saves the tasks to a data file and returns the heap taken by a task list loaded from it,
+     * divided by the number of tasks, first as loaded and then after listing it. The tasks are
+     * handed over and cleared.
+     */
+    private static double[] measure(ArrayList<Task> tasks) throws ChipException, IOException, InterruptedException {
+        int count = tasks.size();
+        Path file = Files.createTempFile("chip-footprint", ".txt");
+        try {
+            Storage storage = new Storage(file.toString());
+            storage.save(tasks);
+            storage.close();
+            tasks.clear();
+            tasks.trimToSize();
+
+            long before = usedHeap();
+            Storage loader = new Storage(file.toString());
+            TaskList taskList = new TaskList(loader.load());
+            loader.close();
+            long loaded = usedHeap();
+            for (Task task : taskList.getTasks()) {
+                task.toString();
+            }
+            long listed = usedHeap();
+            Reference.reachabilityFence(taskList);
+            return new double[] {(double) (loaded - before) / count, (double) (listed - before) / count};
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static ArrayList<Task> generateRecurring(int count, int distinct, long seed) {
+        Random random = new Random(seed);
+        String[] pool = new String[distinct];
+        for (int i = 0; i < distinct; i++) {
+            pool[i] = TaskFileGenerator.randomDescription(random, false);
+        }
+        ArrayList<Task> tasks = TaskFileGenerator.generate(count, 0, seed);
+        ArrayList<Task> recurring = new ArrayList<>(count);
+        for (Task task : tasks) {
+            String description = pool[random.nextInt(distinct)];
+            Task copy;
+            if (task instanceof Deadline) {
+                copy = new Deadline(description, ((Deadline) task).getBy());
+            } else if (task instanceof Event) {
+                copy = new Event(description, ((Event) task).getFrom(), ((Event) task).getTo());
+            } else {
+                copy = new Todo(description);
+            }
+            recurring.add(copy);
+        }
+        return recurring;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < GC_ROUNDS; i++) {
+            System.gc();
+            Thread.sleep(GC_PAUSE_MILLIS);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
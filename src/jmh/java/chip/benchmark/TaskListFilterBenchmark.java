@@ -0,0 +1,76 @@
+package chip.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chip.task.Task;
+import chip.task.TaskFilter;
+import chip.task.TaskList;
+
+/**
+ * Compares {@link TaskList#filter(TaskFilter)}, which scans columns of primitive values, with the
+ * same filter tested on every task object through {@link TaskFilter#matches(Task)}, for "undone
+ * deadlines due before a date". Also measures a description keyword filter on the columns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TaskListFilterBenchmark {
+
+    // Constants
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2024, 7, 1, 0, 0);
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private TaskList tasks;
+    private TaskFilter filter;
+
+    /**
+     * Builds the task list and its columns.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        tasks = new TaskList(TaskFileGenerator.generate(size, 0.01, TaskFileGenerator.DEFAULT_SEED));
+        filter = TaskFilter.deadlines().undone().before(CUTOFF);
+        tasks.filter(filter);
+    }
+
+    @Benchmark
+    public ArrayList<Task> filterColumns() {
+        return tasks.filter(filter);
+    }
+
+    @Benchmark
+    public ArrayList<Task> filterObjects() {
+        ArrayList<Task> matching = new ArrayList<>();
+        for (Task task : tasks.getTasks()) {
+            if (filter.matches(task)) {
+                matching.add(task);
+            }
+        }
+        return matching;
+    }
+
+    @Benchmark
+    public ArrayList<Task> filterKeywordColumns() {
+        return tasks.filter(TaskFilter.all().containing(TaskFileGenerator.KEYWORD));
+    }
+}
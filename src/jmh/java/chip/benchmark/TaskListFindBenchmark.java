@@ -0,0 +1,64 @@
+package chip.benchmark;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chip.task.Task;
+import chip.task.TaskList;
+
+/**
+ * Measures {@link TaskList#findTasks(String)} for different list sizes and fractions of matching
+ * tasks. A keyword of at least three characters is answered by the keyword index, a shorter one
+ * by a linear scan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TaskListFindBenchmark {
+
+    // Constants
+    private static final String SHORT_KEYWORD = TaskFileGenerator.KEYWORD.substring(0, 2);
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"0.0", "0.01", "0.5"})
+    public double hitRatio;
+
+    private TaskList tasks;
+
+    /**
+     * Builds the task list and its keyword index.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        tasks = new TaskList(TaskFileGenerator.generate(size, hitRatio, TaskFileGenerator.DEFAULT_SEED));
+        tasks.findTasks(TaskFileGenerator.KEYWORD);
+    }
+
+    @Benchmark
+    public ArrayList<Task> findIndexed() {
+        return tasks.findTasks(TaskFileGenerator.KEYWORD);
+    }
+
+    @Benchmark
+    public ArrayList<Task> findShortKeyword() {
+        return tasks.findTasks(SHORT_KEYWORD);
+    }
+}
@@ -0,0 +1,79 @@
+package chip.benchmark;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chip.task.Task;
+import chip.task.TaskFilter;
+import chip.task.TaskList;
+
+/**
+ * Compares the scans of {@link TaskList#findTasks(String)} and {@link TaskList#filter(TaskFilter)}
+ * split between the threads of the common pool with the same scans on one thread. The sequential
+ * variants run in a fork whose common pool has a single thread, which keeps the scans on the
+ * calling thread. The speedup depends on the number of cores, so it is only visible on a
+ * multi-core machine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TaskListParallelBenchmark {
+
+    // Constants
+    private static final String SHORT_KEYWORD = TaskFileGenerator.KEYWORD.substring(0, 2);
+    private static final String ONE_THREAD = "-Djava.util.concurrent.ForkJoinPool.common.parallelism=1";
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private TaskList tasks;
+    private TaskFilter filter;
+
+    /**
+     * Builds the task list and its columns.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        tasks = new TaskList(TaskFileGenerator.generate(size, 0.01, TaskFileGenerator.DEFAULT_SEED));
+        filter = TaskFilter.all().containing(TaskFileGenerator.KEYWORD);
+        tasks.filter(filter);
+    }
+
+    @Benchmark
+    public ArrayList<Task> findParallel() {
+        return tasks.findTasks(SHORT_KEYWORD);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = ONE_THREAD)
+    public ArrayList<Task> findSequential() {
+        return tasks.findTasks(SHORT_KEYWORD);
+    }
+
+    @Benchmark
+    public ArrayList<Task> filterParallel() {
+        return tasks.filter(filter);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = ONE_THREAD)
+    public ArrayList<Task> filterSequential() {
+        return tasks.filter(filter);
+    }
+}
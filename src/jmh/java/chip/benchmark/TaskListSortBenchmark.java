@@ -0,0 +1,67 @@
+package chip.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chip.task.Task;
+import chip.task.TaskList;
+
+/**
+ * Measures {@link TaskList#sortByDescription()} on a shuffled list. The list is reshuffled before
+ * every call, since sorting an already sorted list is much cheaper.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TaskListSortBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private ArrayList<Task> generated;
+    private Random random;
+    private TaskList tasks;
+
+    /**
+     * Generates the tasks once per trial.
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        generated = TaskFileGenerator.generate(size, 0, TaskFileGenerator.DEFAULT_SEED);
+        random = new Random(TaskFileGenerator.DEFAULT_SEED);
+    }
+
+    /**
+     * Builds a freshly shuffled list before each call.
+     */
+    @Setup(Level.Invocation)
+    public void shuffle() {
+        ArrayList<Task> shuffled = new ArrayList<>(generated);
+        Collections.shuffle(shuffled, random);
+        tasks = new TaskList(shuffled);
+    }
+
+    @Benchmark
+    public TaskList sortByDescription() {
+        tasks.sortByDescription();
+        return tasks;
+    }
+}
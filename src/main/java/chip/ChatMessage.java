@@ -0,0 +1,29 @@
+package chip;
+
+/**
+ * One message of the chat transcript shown in the GUI.
+ */
+public class ChatMessage {
+    private final String text;
+    private final boolean isFromUser;
+
+    /**
+     * Constructs a ChatMessage.
+     *
+     * @param text the text of the message
+     * @param isFromUser true if the user sent the message, false if Chip did
+     */
+    public ChatMessage(String text, boolean isFromUser) {
+        assert text != null : "Message text cannot be null";
+        this.text = text;
+        this.isFromUser = isFromUser;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public boolean isFromUser() {
+        return isFromUser;
+    }
+}
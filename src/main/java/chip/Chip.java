@@ -1,8 +1,21 @@
 package chip;
 
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+
+import chip.command.BatchResult;
+import chip.command.BatchRunner;
 import chip.command.Parser;
+import chip.storage.KeyValueStorage;
 import chip.storage.Storage;
+import chip.storage.SyncPolicy;
+import chip.storage.TaskRepository;
+import chip.task.Cancellation;
 import chip.task.TaskList;
+import chip.ui.BufferedResponseSink;
+import chip.ui.ChunkedResponseSink;
+import chip.ui.ResponseSink;
 import chip.ui.Ui;
 
 /**
@@ -15,33 +28,58 @@ public class Chip {
     private static final String DEFAULT_FILE_PATH = "./data/chip.txt";
     private static final String BYE_COMMAND = "bye";
     private static final String GOODBYE_MESSAGE = "Bye. Hope to see you again soon!";
+    private static final String MESSAGE_CANCELLED = "Cancelled. Your tasks are unchanged.";
     private static final String ERROR_PREFIX = "OOPS!!! ";
-    private static final String ERROR_NO_ACTION = "I'm sorry, there is no such action.";
     private static final String ERROR_UNEXPECTED = "An unexpected error occurred. Please check your command.";
     private static final String ERROR_FILE_NOT_FOUND = "Data file not found. Starting with an empty task list.";
-    private static final String NEWLINE = "\n";
+    private static final int SYNC_MAX_PENDING_WRITES = 64;
+    private static final long SYNC_MAX_DELAY_MILLIS = 50;
+    private static final String KEY_VALUE_SUFFIX = ".db";
+
+    /** One reusable response buffer per thread answering commands */
+    private static final ThreadLocal<BufferedResponseSink> RESPONSE_SINK =
+            ThreadLocal.withInitial(BufferedResponseSink::new);
 
-    private Storage storage;
+    private TaskRepository storage;
     private TaskList tasks;
     private Ui ui;
 
     /**
      * Constructs a new Chip instance with the specified file path for data storage.
-     * Initializes UI, storage, and loads existing tasks from file.
+     * Initializes UI, storage, and loads existing tasks from file. A path ending in ".db" is kept
+     * as a key-value log, any other path as a text or binary data file.
      *
      * @param filePath the path to the file where tasks are stored
      */
     public Chip(String filePath) {
+        this(openRepository(filePath));
+    }
+
+    /**
+     * Constructs a new Chip instance that keeps its tasks in the given repository.
+     *
+     * @param storage the repository to load tasks from and save them to
+     */
+    public Chip(TaskRepository storage) {
+        assert storage != null : "Storage cannot be null";
         ui = new Ui();
-        storage = new Storage(filePath);
+        this.storage = storage;
         try {
-            tasks = new TaskList(storage.load());
+            tasks = new TaskList(storage.load(), storage.getNextId());
         } catch (ChipException e) {
             ui.showError(ERROR_FILE_NOT_FOUND);
             tasks = new TaskList();
         }
     }
 
+    private static TaskRepository openRepository(String filePath) {
+        SyncPolicy syncPolicy = new SyncPolicy(SYNC_MAX_PENDING_WRITES, SYNC_MAX_DELAY_MILLIS);
+        if (filePath.endsWith(KEY_VALUE_SUFFIX)) {
+            return new KeyValueStorage(filePath, syncPolicy);
+        }
+        return new Storage(filePath, true, syncPolicy, true);
+    }
+
     /**
      * Generates a response for the user's chat message for GUI usage.
      *
@@ -49,38 +87,104 @@ public class Chip {
      * @return the response string to display in GUI
      */
     public String getResponse(String input) {
+        return getResponse(input, Cancellation.NONE);
+    }
+
+    /**
+     * Generates a response for the user's chat message, stopping a long find or sort early if
+     * the given cancellation is requested. A cancelled command leaves the tasks unchanged.
+     *
+     * @param input the user's input command
+     * @param cancellation the cancellation to watch
+     * @return the response string to display in GUI
+     */
+    public String getResponse(String input, Cancellation cancellation) {
+        assert cancellation != null : "Cancellation cannot be null";
+        BufferedResponseSink response = RESPONSE_SINK.get();
+        response.reset();
+        String outcome = respond(input, cancellation, response);
+        if (outcome != null) {
+            response.reset();
+            return outcome;
+        }
+        return response.takeResponse();
+    }
+
+    /**
+     * Generates a response for the user's chat message and passes it on in chunks as it is
+     * written, so a long response such as the list of a huge task list is never held in memory
+     * as a whole. Each chunk holds whole lines, each ending in a newline.
+     *
+     * <p>The consumer runs while the command holds the task list's lock, so it must not block:
+     * a consumer that writes to a network client blocks whenever the client stops reading, and
+     * should hand the chunks to another thread instead.
+     *
+     * @param input the user's input command
+     * @param chunkConsumer receives the chunks of the response in order
+     */
+    public void streamResponse(String input, Consumer<String> chunkConsumer) {
+        assert chunkConsumer != null : "Chunk consumer cannot be null";
+        ChunkedResponseSink response = new ChunkedResponseSink(chunkConsumer);
+        String outcome = respond(input, Cancellation.NONE, response);
+        if (outcome != null) {
+            response.showMessage(outcome);
+        }
+        response.flush();
+    }
+
+    /**
+     * Runs a command, writing its output to the sink.
+     *
+     * @return null if the command ran, otherwise the whole response to show instead of the output
+     */
+    private String respond(String input, Cancellation cancellation, ResponseSink response) {
         try {
             if (input.trim().equalsIgnoreCase(BYE_COMMAND)) {
+                closeStorage();
                 return GOODBYE_MESSAGE;
             }
-
-            StringBuilder response = new StringBuilder();
-
-            Ui mockUi = new Ui() {
-                @Override
-                public void showMessage(String message) {
-                    response.append(message).append(NEWLINE);
-                }
-
-                @Override
-                public void showError(String message) {
-                    response.append(ERROR_PREFIX).append(message).append(NEWLINE);
-                }
-            };
-
-            Parser.parse(input, tasks, mockUi, storage);
-
-            return response.toString().trim();
-
+            Parser.parse(input, tasks, response, storage, cancellation);
+            return null;
         } catch (ChipException e) {
             return ERROR_PREFIX + e.getMessage();
-        } catch (IllegalArgumentException e) {
-            return ERROR_PREFIX + ERROR_NO_ACTION;
+        } catch (CancellationException e) {
+            return MESSAGE_CANCELLED;
         } catch (Exception e) {
             return ERROR_PREFIX + ERROR_UNEXPECTED;
         }
     }
 
+    /**
+     * Generates responses for many commands at once. The commands run as one batch, so the tasks
+     * are saved once at the end instead of after every command.
+     *
+     * @param inputs the commands to run, in order
+     * @return the response to each command, in order
+     */
+    public List<String> getResponses(List<String> inputs) {
+        return getResponses(inputs, false);
+    }
+
+    /**
+     * Generates responses for many commands at once, saving the tasks once at the end.
+     * If the batch is atomic, it stops at the first failing command and undoes the changes made
+     * by the commands before it, so the responses end with that command's error.
+     * If the tasks cannot be saved, the save error is added as a final response.
+     *
+     * @param inputs the commands to run, in order
+     * @param isAtomic whether a failing command undoes the whole batch
+     * @return the response to each command that was run, in order
+     */
+    public List<String> getResponses(List<String> inputs, boolean isAtomic) {
+        assert inputs != null : "Inputs cannot be null";
+        BatchResult result = BatchRunner.run(inputs, isAtomic, tasks, storage);
+        List<String> responses = result.getResponses();
+        if (result.getSaveError() != null) {
+            responses.add(ERROR_PREFIX + result.getSaveError());
+        }
+        return responses;
+    }
+
     /**
      * Starts the main application loop.
      * Displays welcome message and continuously processes user commands until exit.
@@ -94,6 +198,7 @@ public class Chip {
                 ui.showLine();
 
                 if (fullCommand.trim().equalsIgnoreCase(BYE_COMMAND)) {
+                    closeStorage();
                     ui.showGoodbye();
                     ui.showLine();
                     break;
@@ -103,8 +208,6 @@ public class Chip {
 
             } catch (ChipException e) {
                 ui.showError(e.getMessage());
-            } catch (IllegalArgumentException e) {
-                ui.showError(ERROR_NO_ACTION);
             } catch (Exception e) {
                 ui.showError(ERROR_UNEXPECTED);
             } finally {
@@ -113,6 +216,25 @@ public class Chip {
         }
     }
 
+    /**
+     * Flushes outstanding changes to storage. Used when Chip is shut down other than by "bye",
+     * e.g. by a server.
+     */
+    public void close() {
+        closeStorage();
+    }
+
+    /**
+     * Flushes outstanding changes to storage before the application exits.
+     */
+    private void closeStorage() {
+        try {
+            storage.close();
+        } catch (ChipException e) {
+            ui.showError(e.getMessage());
+        }
+    }
+
     /**
      * Entry point for the Chip application.
      * Creates a new Chip instance and starts the application.
@@ -6,6 +6,8 @@ package chip;
  */
 public class ChipException extends Exception {
 
+    private static final long serialVersionUID = 1L;
+
     /**
      * Constructs a new ChipException with the specified error message.
      *
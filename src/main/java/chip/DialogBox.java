@@ -1,14 +1,11 @@
 package chip;
 
 import java.io.IOException;
-import java.util.Collections;
+import java.net.URL;
 
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.geometry.Pos;
-import javafx.scene.Node;
 import javafx.scene.control.Label;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
@@ -17,44 +14,60 @@ import javafx.scene.layout.HBox;
 /**
  * Represents a dialog box consisting of an ImageView to represent the speaker's face
  * and a label containing text from the speaker.
+ * A dialog box can be given a new message at any time, so one box can show many messages in turn.
  */
 public class DialogBox extends HBox {
+    private static final URL TEMPLATE = MainWindow.class.getResource("/view/DialogBox.fxml");
+
     @FXML
     private Label dialog;
     @FXML
     private ImageView displayPicture;
 
-    private DialogBox(String text, Image img) {
+    /**
+     * Constructs an empty dialog box from the FXML template.
+     */
+    public DialogBox() {
         try {
-            FXMLLoader fxmlLoader = new FXMLLoader(MainWindow.class.getResource("/view/DialogBox.fxml"));
+            FXMLLoader fxmlLoader = new FXMLLoader(TEMPLATE);
             fxmlLoader.setController(this);
             fxmlLoader.setRoot(this);
             fxmlLoader.load();
         } catch (IOException e) {
             e.printStackTrace();
         }
-
-        dialog.setText(text);
-        displayPicture.setImage(img);
     }
 
     /**
-     * Flips the dialog box such that the ImageView is on the left and text on the right.
+     * Shows a message from the user, with the text on the left and the picture on the right.
+     *
+     * @param text the message text
+     * @param img the user's picture
      */
-    private void flip() {
-        ObservableList<Node> tmp = FXCollections.observableArrayList(this.getChildren());
-        Collections.reverse(tmp);
-        getChildren().setAll(tmp);
-        setAlignment(Pos.TOP_LEFT);
+    public void showUserMessage(String text, Image img) {
+        show(text, img);
+        if (getChildren().get(0) != dialog) {
+            getChildren().setAll(dialog, displayPicture);
+        }
+        setAlignment(Pos.TOP_RIGHT);
     }
 
-    public static DialogBox getUserDialog(String text, Image img) {
-        return new DialogBox(text, img);
+    /**
+     * Shows a message from Chip, with the picture on the left and the text on the right.
+     *
+     * @param text the message text
+     * @param img Chip's picture
+     */
+    public void showChipMessage(String text, Image img) {
+        show(text, img);
+        if (getChildren().get(0) != displayPicture) {
+            getChildren().setAll(displayPicture, dialog);
+        }
+        setAlignment(Pos.TOP_LEFT);
     }
 
-    public static DialogBox getChipDialog(String text, Image img) {
-        var db = new DialogBox(text, img);
-        db.flip();
-        return db;
+    private void show(String text, Image img) {
+        dialog.setText(text);
+        displayPicture.setImage(img);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,51 @@
+package chip;
+
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.image.Image;
+
+/**
+ * A transcript cell that shows a message as a {@link DialogBox}.
+ * The list view only creates enough cells to fill the visible area and hands them new messages as
+ * the user scrolls, so each cell loads its dialog box once and then reuses it for every message.
+ */
+public class DialogCell extends ListCell<ChatMessage> {
+
+    // Constants
+    private static final double SCROLL_BAR_ALLOWANCE = 20.0;
+
+    private final DialogBox dialogBox = new DialogBox();
+    private final Image userImage;
+    private final Image chipImage;
+
+    /**
+     * Constructs a DialogCell whose dialog box follows the width of the list view.
+     *
+     * @param listView the list view the cell belongs to
+     * @param userImage the picture shown next to the user's messages
+     * @param chipImage the picture shown next to Chip's messages
+     */
+    public DialogCell(ListView<ChatMessage> listView, Image userImage, Image chipImage) {
+        this.userImage = userImage;
+        this.chipImage = chipImage;
+        // Let the cell shrink to the list width so long lines wrap instead of scrolling sideways
+        setPrefWidth(0);
+        dialogBox.prefWidthProperty().bind(listView.widthProperty().subtract(SCROLL_BAR_ALLOWANCE));
+        dialogBox.maxWidthProperty().bind(listView.widthProperty().subtract(SCROLL_BAR_ALLOWANCE));
+    }
+
+    @Override
+    protected void updateItem(ChatMessage message, boolean isEmpty) {
+        super.updateItem(message, isEmpty);
+        if (isEmpty || message == null) {
+            setGraphic(null);
+            return;
+        }
+        if (message.isFromUser()) {
+            dialogBox.showUserMessage(message.getText(), userImage);
+        } else {
+            dialogBox.showChipMessage(message.getText(), chipImage);
+        }
+        setGraphic(dialogBox);
+    }
+}
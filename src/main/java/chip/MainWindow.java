@@ -1,37 +1,69 @@
 package chip;
 
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import chip.task.Cancellation;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
-import javafx.scene.control.ScrollPane;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TextField;
 import javafx.scene.image.Image;
 import javafx.scene.layout.AnchorPane;
-import javafx.scene.layout.VBox;
 
 /**
  * Controller for the main GUI.
+ *
+ * <p>Commands run one at a time on a background thread, so a long sort, search or save never
+ * freezes the window. Their replies are posted back to the JavaFX thread in the order the commands
+ * were entered. While commands are pending a busy indicator is shown, and the cancel button stops
+ * a long find or sort that is running.
  */
 public class MainWindow extends AnchorPane {
+
+    // Constants
+    private static final int MAX_HISTORY = 500;
+
     @FXML
-    private ScrollPane scrollPane;
-    @FXML
-    private VBox dialogContainer;
+    private ListView<ChatMessage> dialogList;
     @FXML
     private TextField userInput;
     @FXML
     private Button sendButton;
+    @FXML
+    private ProgressIndicator busyIndicator;
+    @FXML
+    private Button cancelButton;
 
     private Chip chip;
 
     private Image userImage = new Image(this.getClass().getResourceAsStream("/images/DaUser.png"));
     private Image chipImage = new Image(this.getClass().getResourceAsStream("/images/DaChip.jpg"));
 
+    /** The transcript, oldest message first, holding at most MAX_HISTORY messages */
+    private final ObservableList<ChatMessage> messages = FXCollections.observableArrayList();
+
+    /** Runs the commands in the order they were entered */
+    private final ExecutorService commandRunner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chip-command");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** The cancellations of the submitted commands that have not replied, the running one first */
+    private final ArrayDeque<Cancellation> pendingCommands = new ArrayDeque<>();
+
     @FXML
     public void initialize() {
-        scrollPane.vvalueProperty().bind(dialogContainer.heightProperty());
-        dialogContainer.getChildren().add(
-                DialogBox.getChipDialog("Hello! I'm Chip\nWhat can I do for you?", chipImage)
-        );
+        dialogList.setItems(messages);
+        dialogList.setCellFactory(list -> new DialogCell(list, userImage, chipImage));
+        addMessages(new ChatMessage("Hello! I'm Chip\nWhat can I do for you?", false));
+        showBusy(false);
     }
 
     /** Injects the Chip instance */
@@ -40,21 +72,67 @@ public class MainWindow extends AnchorPane {
     }
 
     /**
-     * Creates two dialog boxes, one echoing user input and the other containing Chip's reply and then appends them to
-     * the dialog container. Clears the user input after processing.
+     * Adds the user input to the transcript and runs it in the background. Chip's reply is added
+     * once the command and every command entered before it have finished.
+     * Clears the user input after processing.
      */
     @FXML
     private void handleUserInput() {
         String input = userInput.getText();
-        String response = chip.getResponse(input);
-        dialogContainer.getChildren().addAll(
-                DialogBox.getUserDialog(input, userImage),
-                DialogBox.getChipDialog(response, chipImage)
-        );
+        addMessages(new ChatMessage(input, true));
         userInput.clear();
 
         if (input.trim().equalsIgnoreCase("bye")) {
-            javafx.application.Platform.exit();
+            // Nothing may run after bye has closed the storage
+            userInput.setDisable(true);
+            sendButton.setDisable(true);
+        }
+
+        Cancellation cancellation = new Cancellation();
+        pendingCommands.addLast(cancellation);
+        showBusy(true);
+        commandRunner.execute(() -> {
+            String response = chip.getResponse(input, cancellation);
+            Platform.runLater(() -> showResponse(input, response));
+        });
+    }
+
+    /**
+     * Cancels the running command if it is a find or sort; other commands finish as usual.
+     */
+    @FXML
+    private void handleCancel() {
+        Cancellation running = pendingCommands.peekFirst();
+        if (running != null) {
+            running.request();
+        }
+    }
+
+    private void showResponse(String input, String response) {
+        pendingCommands.removeFirst();
+        addMessages(new ChatMessage(response, false));
+        showBusy(!pendingCommands.isEmpty());
+
+        if (input.trim().equalsIgnoreCase("bye")) {
+            commandRunner.shutdown();
+            Platform.exit();
+        }
+    }
+
+    private void showBusy(boolean isBusy) {
+        busyIndicator.setVisible(isBusy);
+        cancelButton.setVisible(isBusy);
+    }
+
+    /**
+     * Appends messages to the transcript, dropping the oldest ones beyond MAX_HISTORY.
+     */
+    private void addMessages(ChatMessage... newMessages) {
+        messages.addAll(newMessages);
+        int excess = messages.size() - MAX_HISTORY;
+        if (excess > 0) {
+            messages.remove(0, excess);
         }
+        dialogList.scrollTo(messages.size() - 1);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,79 @@
+package chip.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of running a batch of commands: one response per command that was run, whether
+ * the batch was rolled back, and whether its changes could be saved.
+ */
+public class BatchResult {
+    private final List<String> responses;
+    private final List<Integer> failedIndexes;
+    private final boolean isRolledBack;
+    private final String saveError;
+
+    /**
+     * Constructs a batch result.
+     *
+     * @param responses the response to each command that was run, in order
+     * @param failedIndexes the 0-based indexes of the commands that failed
+     * @param isRolledBack whether the changes made by the batch were undone
+     * @param saveError the error from saving the changes, or null if they were saved
+     */
+    BatchResult(List<String> responses, List<Integer> failedIndexes, boolean isRolledBack, String saveError) {
+        assert responses != null : "Responses cannot be null";
+        assert failedIndexes != null : "Failed indexes cannot be null";
+        this.responses = responses;
+        this.failedIndexes = failedIndexes;
+        this.isRolledBack = isRolledBack;
+        this.saveError = saveError;
+    }
+
+    /**
+     * Returns the response to each command that was run. An atomic batch stops at the first
+     * failure, so it may have fewer responses than commands.
+     *
+     * @return the responses in command order
+     */
+    public List<String> getResponses() {
+        return new ArrayList<>(responses);
+    }
+
+    /**
+     * Returns the indexes of the commands that failed.
+     *
+     * @return the 0-based indexes in command order
+     */
+    public List<Integer> getFailedIndexes() {
+        return new ArrayList<>(failedIndexes);
+    }
+
+    /**
+     * Returns the number of commands that ran without an error.
+     *
+     * @return the number of successful commands
+     */
+    public int getSucceededCount() {
+        return responses.size() - failedIndexes.size();
+    }
+
+    /**
+     * Returns whether the changes made by the batch were undone because a command failed.
+     *
+     * @return true if the batch was rolled back
+     */
+    public boolean isRolledBack() {
+        return isRolledBack;
+    }
+
+    /**
+     * Returns the error that occurred while saving the changes made by the batch. The changes are
+     * still applied to the task list, so they are saved with the next successful save.
+     *
+     * @return the error message, or null if the changes were saved or there was nothing to save
+     */
+    public String getSaveError() {
+        return saveError;
+    }
+}
@@ -0,0 +1,110 @@
+package chip.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import chip.ChipException;
+import chip.storage.TaskRepository;
+import chip.task.TaskList;
+import chip.ui.BufferedResponseSink;
+import chip.ui.ResponseSink;
+
+/**
+ * Runs many commands as one transaction. Changes are persisted once at the end of the batch
+ * instead of once per command, and an atomic batch undoes all of its changes if any command fails.
+ */
+public class BatchRunner {
+
+    // Constants
+    private static final String ERROR_PREFIX = "OOPS!!! ";
+    private static final String ERROR_UNEXPECTED = "An unexpected error occurred. Please check your command.";
+    private static final String ERROR_NESTED_BATCH = "A batch cannot run another batch.";
+
+    private BatchRunner() {
+    }
+
+    /**
+     * Runs the commands in order against the task list and saves the result once.
+     * If the batch is atomic, the first failing command stops it and every change made by the
+     * batch is undone, so nothing is saved. Otherwise failing commands are reported and skipped.
+     *
+     * @param commands the commands to run
+     * @param isAtomic whether a failure undoes the whole batch
+     * @param tasks the task list to operate on
+     * @param storage the storage to save the tasks to
+     * @return the response to each command that was run, whether the batch was rolled back and
+     *         any error from saving the tasks at the end
+     */
+    public static BatchResult run(List<String> commands, boolean isAtomic, TaskList tasks, TaskRepository storage) {
+        assert commands != null : "Commands cannot be null";
+        assert tasks != null : "TaskList cannot be null";
+        assert storage != null : "Storage cannot be null";
+
+        // Hold the write lock for the whole batch, so no other command sees it half done
+        tasks.writeLock().lock();
+        try {
+            return runLocked(commands, isAtomic, tasks, storage);
+        } finally {
+            tasks.writeLock().unlock();
+        }
+    }
+
+    private static BatchResult runLocked(List<String> commands, boolean isAtomic, TaskList tasks,
+            TaskRepository storage) {
+        TaskList.Checkpoint checkpoint = isAtomic ? tasks.checkpoint() : null;
+        List<String> responses = new ArrayList<>(commands.size());
+        List<Integer> failedIndexes = new ArrayList<>();
+        BufferedResponseSink response = new BufferedResponseSink();
+
+        storage.beginBatch();
+        try {
+            for (int i = 0; i < commands.size(); i++) {
+                response.reset();
+                String error = runCommand(commands.get(i), tasks, response, storage);
+                if (error == null) {
+                    responses.add(response.takeResponse());
+                    continue;
+                }
+
+                responses.add(ERROR_PREFIX + error);
+                failedIndexes.add(i);
+                if (isAtomic) {
+                    tasks.restore(checkpoint);
+                    storage.abortBatch();
+                    return new BatchResult(responses, failedIndexes, true, null);
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            storage.abortBatch();
+            throw e;
+        }
+
+        try {
+            storage.endBatch(tasks.getTasks());
+        } catch (ChipException e) {
+            return new BatchResult(responses, failedIndexes, false, e.getMessage());
+        }
+        return new BatchResult(responses, failedIndexes, false, null);
+    }
+
+    /**
+     * Runs a single command.
+     *
+     * @return the error message if the command failed, or null if it succeeded
+     */
+    private static String runCommand(String command, TaskList tasks, ResponseSink ui, TaskRepository storage) {
+        String trimmed = command.trim();
+        int verbEnd = trimmed.indexOf(' ');
+        if (Command.fromVerb(verbEnd < 0 ? trimmed : trimmed.substring(0, verbEnd)) == Command.BATCH) {
+            return ERROR_NESTED_BATCH;
+        }
+        try {
+            Parser.parse(command, tasks, ui, storage);
+            return null;
+        } catch (ChipException e) {
+            return e.getMessage();
+        } catch (Exception e) {
+            return ERROR_UNEXPECTED;
+        }
+    }
+}
@@ -1,28 +1,73 @@
 package chip.command;
 
+import java.util.TreeMap;
+
 /**
  * Enumeration of all available commands in the Chip application.
  * Each enum value represents a specific action that users can perform.
  */
 public enum Command {
     /** Add a simple todo task */
-    TODO,
+    TODO(false),
     /** Add a task with a deadline */
-    DEADLINE,
+    DEADLINE(false),
     /** Add a task that occurs during a specific time period */
-    EVENT,
+    EVENT(false),
     /** Display all tasks in the list */
-    LIST,
+    LIST(true),
     /** Mark a task as completed */
-    MARK,
+    MARK(false),
     /** Mark a task as not completed */
-    UNMARK,
+    UNMARK(false),
     /** Remove a task from the list */
-    DELETE,
+    DELETE(false),
     /** Find tasks containing a keyword */
-    FIND,
+    FIND(true),
     /** Sort tasks by description alphabetically */
-    SORT,
+    SORT(false),
+    /** Show deadlines and events within a date range */
+    DUE(true),
+    /** Show deadlines that are past due and not done */
+    OVERDUE(true),
+    /** Show deadlines and events on a date */
+    ON(true),
+    /** Run the commands in a file as one batch */
+    BATCH(false),
     /** Exit the application */
-    BYE
+    BYE(true);
+
+    /** Every command keyed by its verb, compared without regard to case */
+    private static final TreeMap<String, Command> BY_VERB = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        for (Command command : values()) {
+            BY_VERB.put(command.name(), command);
+        }
+    }
+
+    private final boolean isReadOnly;
+
+    Command(boolean isReadOnly) {
+        this.isReadOnly = isReadOnly;
+    }
+
+    /**
+     * Looks up the command for a verb, ignoring case. Unlike {@link #valueOf(String)}, an unknown
+     * verb neither throws nor needs an uppercase copy of the verb.
+     *
+     * @param verb the first word of the user's input
+     * @return the command, or null if there is none with that verb
+     */
+    public static Command fromVerb(String verb) {
+        return BY_VERB.get(verb);
+    }
+
+    /**
+     * Returns whether the command only reads the task list, so it can run alongside other readers.
+     *
+     * @return true if the command never changes the task list
+     */
+    public boolean isReadOnly() {
+        return isReadOnly;
+    }
 }
\ No newline at end of file
@@ -1,15 +1,30 @@
 package chip.command;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
 
 import chip.ChipException;
-import chip.storage.Storage;
+import chip.storage.TaskRepository;
+import chip.task.Cancellation;
 import chip.task.Deadline;
 import chip.task.Event;
 import chip.task.Task;
+import chip.task.TaskFilter;
 import chip.task.TaskList;
+import chip.task.TaskSortKey;
 import chip.task.Todo;
-import chip.ui.Ui;
+import chip.ui.ResponseSink;
 
 /**
  * Handles parsing and execution of user commands.
@@ -23,8 +38,26 @@ public class Parser {
     private static final String DEADLINE_SEPARATOR = "/by ";
     private static final String EVENT_FROM_SEPARATOR = "/from ";
     private static final String EVENT_TO_SEPARATOR = "/to ";
+    private static final String HELP_COMMAND = "help";
+    private static final String TASK_ID_PREFIX = "#";
+    private static final String TARGET_SEPARATOR = ",";
+    private static final String RANGE_SEPARATOR = "-";
+    private static final String TARGET_DONE = "done";
+    private static final String TARGET_UNDONE = "undone";
+    private static final String TARGET_ALL = "all";
+    private static final String BATCH_ATOMIC_FLAG = "--atomic";
+    private static final String BATCH_COMMENT_PREFIX = "#";
+    private static final String SORTED_BY_PREFIX = "sorted by ";
+    private static final String LIST_OPTION_PREFIX = "--";
+    private static final String LIST_PAGE_OPTION = "--page";
+    private static final String LIST_SIZE_OPTION = "--size";
+    private static final String LIST_AFTER_OPTION = "--after";
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 1000;
     
     // Error messages
+    private static final String ERROR_UNKNOWN_COMMAND =
+            "I don't understand that command. Type 'help' to see available commands.";
     private static final String ERROR_MARK_TASK = "Please specify which task to mark.";
     private static final String ERROR_UNMARK_TASK = "Please specify which task to unmark.";
     private static final String ERROR_DELETE_TASK = "Please specify which task to delete.";
@@ -34,53 +67,164 @@ public class Parser {
     private static final String ERROR_EVENT_EMPTY = "The description of an event cannot be empty.";
     private static final String ERROR_EVENT_FROM_FORMAT = "Please specify the event start time using /from.";
     private static final String ERROR_EVENT_TO_FORMAT = "Please specify the event end time using /to.";
+    private static final String ERROR_EVENT_ORDER = "An event cannot end before it starts.";
     private static final String ERROR_FIND_KEYWORD = "Please specify a keyword to search for.";
     private static final String ERROR_INVALID_TASK_NUMBER = "Please provide a valid task number.";
     private static final String ERROR_NEGATIVE_TASK_NUMBER = "Task number must be positive.";
+    private static final String ERROR_INVALID_TASK_ID = "Please provide a valid task id, e.g. #12.";
+    private static final String ERROR_NO_TASK_WITH_ID = "There is no task with id #%d.";
+    private static final String ERROR_NO_TASK_NUMBERED = "There is no task numbered %d.";
+    private static final String ERROR_RANGE_ORDER = "The range %s must start before it ends.";
+    private static final String ERROR_DUE_RANGE = "Please specify a date range using due <from> <to>.";
+    private static final String ERROR_ON_DATE = "Please specify a date using on <date>.";
+    private static final String ERROR_DATE_FORMAT = "Please use the date format yyyy-MM-dd.";
+    private static final String ERROR_DATE_ORDER = "The start date must not be after the end date.";
+    private static final String ERROR_BATCH_FILE = "Please specify a file using batch [--atomic] <file>.";
+    private static final String ERROR_BATCH_READ = "Could not read the batch file: ";
+    private static final String ERROR_SORT_KEY = "Please use list sorted by <description|deadline|status>.";
+    private static final String ERROR_LIST_OPTIONS =
+            "Please use list --page <number> [--size <count>] or list --after <task> [--size <count>].";
+    private static final String ERROR_PAGE_NUMBER = "Page numbers start at 1.";
+    private static final String ERROR_PAGE_SIZE = "A page holds 1 to " + MAX_PAGE_SIZE + " tasks.";
     
     // Success messages
     private static final String MESSAGE_TASK_MARKED = "Nice! I've marked this task as done:";
     private static final String MESSAGE_TASK_UNMARKED = "OK, I've marked this task as not done yet:";
     private static final String MESSAGE_TASK_DELETED = "Noted. I've removed this task:";
     private static final String MESSAGE_TASK_ADDED = "Got it. I've added this task:";
+    private static final String MESSAGE_TASKS_MARKED = "Nice! I've marked %d tasks as done.";
+    private static final String MESSAGE_TASKS_UNMARKED = "OK, I've marked %d tasks as not done yet.";
+    private static final String MESSAGE_TASKS_DELETED = "Noted. I've removed %d tasks.";
     private static final String MESSAGE_TASK_COUNT = "Now you have %d tasks in the list.";
     private static final String MESSAGE_LIST_HEADER = "Here are the tasks in your list:";
+    private static final String MESSAGE_SORTED_LIST_HEADER = "Here are the tasks in your list, sorted by %s:";
+    private static final String MESSAGE_PAGE_HEADER = "Here are tasks %d to %d of the %d in your list:";
+    private static final String MESSAGE_PAGE_EMPTY = "There are no more tasks in your list.";
+    private static final String MESSAGE_PAGE_MORE = "Type 'list --after #%d --size %d' to see more.";
     private static final String MESSAGE_FIND_HEADER = "Here are the matching tasks in your list:";
     private static final String MESSAGE_NO_MATCHES = "No matching tasks found.";
+    private static final String MESSAGE_DUE_HEADER = "Here are the tasks between %s and %s:";
+    private static final String MESSAGE_OVERDUE_HEADER = "Here are your overdue tasks:";
+    private static final String MESSAGE_ON_HEADER = "Here are the tasks on %s:";
     private static final String MESSAGE_TASKS_SORTED = "Tasks have been sorted alphabetically by description.";
     private static final String MESSAGE_HELP_HEADER = "Here are the commands I understand:";
+    private static final String MESSAGE_BATCH_SUMMARY = "Ran %d commands from %s: %d succeeded, %d failed.";
+    private static final String MESSAGE_BATCH_ROLLED_BACK = "None of the commands in %s were applied:";
+    private static final String MESSAGE_BATCH_FAILURE = " Line %d: %s";
+    private static final String MESSAGE_TASK_TOTAL = "You have %d tasks in the list.";
 
     /**
      * Parses a user command and executes the corresponding action.
      *
      * @param fullCommand the complete command string entered by the user
      * @param tasks the task list to operate on
-     * @param ui the user interface for displaying messages
+     * @param ui the sink receiving the response
      * @param storage the storage component for saving tasks
      * @throws ChipException if the command is invalid or cannot be executed
      */
-    public static void parse(String fullCommand, TaskList tasks, Ui ui, Storage storage) throws ChipException {
+    public static void parse(String fullCommand, TaskList tasks, ResponseSink ui, TaskRepository storage) throws ChipException {
+        parse(fullCommand, tasks, ui, storage, Cancellation.NONE);
+    }
+
+    /**
+     * Parses a user command and executes the corresponding action, letting a long find or sort be
+     * cancelled from another thread.
+     *
+     * @param fullCommand the complete command string entered by the user
+     * @param tasks the task list to operate on
+     * @param ui the sink receiving the response
+     * @param storage the storage component for saving tasks
+     * @param cancellation the cancellation watched by find and sort
+     * @throws ChipException if the command is invalid or cannot be executed
+     * @throws java.util.concurrent.CancellationException if the command was cancelled before it
+     *         changed anything
+     */
+    public static void parse(String fullCommand, TaskList tasks, ResponseSink ui, TaskRepository storage,
+            Cancellation cancellation) throws ChipException {
         assert fullCommand != null : "Command cannot be null";
         assert tasks != null : "TaskList cannot be null";
         assert ui != null : "Ui cannot be null";
         assert storage != null : "Storage cannot be null";
+        assert cancellation != null : "Cancellation cannot be null";
         
-        String[] parts = fullCommand.split(COMMAND_SEPARATOR, COMMAND_PART_LIMIT);
+        String[] parts = splitCommand(fullCommand);
         assert parts.length > 0 : "Command parts should have at least one element";
         
         // Handle help command
-        if (parts[0].toLowerCase().equals("help")) {
+        if (parts[0].equalsIgnoreCase(HELP_COMMAND)) {
             showHelp(ui);
             return;
         }
         
+        Command action = Command.fromVerb(parts[0]);
+        if (action == null) {
+            throw new ChipException(ERROR_UNKNOWN_COMMAND);
+        }
+
+        // Each command runs under one lock, so it sees and leaves a consistent list
+        Lock lock = action.isReadOnly() ? tasks.readLock() : tasks.writeLock();
+        lock.lock();
         try {
-            Command action = Command.valueOf(parts[0].toUpperCase());
-            assert action != null : "Command should be valid after parsing";
+            execute(action, parts, tasks, ui, storage, cancellation);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Splits a command into its verb and the rest at the first space, like
+     * {@code split(" ", 2)} but without going through the regex machinery.
+     *
+     * @param fullCommand the complete command string
+     * @return the verb, followed by the rest of the command if there is a space
+     */
+    private static String[] splitCommand(String fullCommand) {
+        int space = fullCommand.indexOf(COMMAND_SEPARATOR);
+        if (space < 0) {
+            return new String[] {fullCommand};
+        }
+        return new String[] {fullCommand.substring(0, space), fullCommand.substring(space + 1)};
+    }
 
-            switch (action) {
+    /**
+     * Splits text around the first occurrence of a separator, e.g. "return book /by 2024-12-31 1800"
+     * around "/by ". Anything from a second occurrence of the separator onwards is dropped.
+     *
+     * @param text the text to split
+     * @param separator the separator to look for
+     * @return the text before and after the separator, or null if the separator is missing or
+     *         nothing follows it
+     */
+    private static String[] splitAround(String text, String separator) {
+        int start = text.indexOf(separator);
+        if (start < 0) {
+            return null;
+        }
+        int valueStart = start + separator.length();
+        int valueEnd = text.indexOf(separator, valueStart);
+        if (valueEnd < 0) {
+            valueEnd = text.length();
+        }
+        if (valueStart == valueEnd) {
+            return null;
+        }
+        return new String[] {text.substring(0, start), text.substring(valueStart, valueEnd)};
+    }
+
+    /**
+     * Executes a parsed command.
+     */
+    private static void execute(Command action, String[] parts, TaskList tasks, ResponseSink ui, TaskRepository storage,
+            Cancellation cancellation) throws ChipException {
+        switch (action) {
         case LIST:
-            showTaskList(tasks, ui);
+            if (parts.length < COMMAND_PART_LIMIT) {
+                showTaskList(tasks, ui);
+            } else if (parts[1].trim().startsWith(LIST_OPTION_PREFIX)) {
+                showTaskPage(parts[1], tasks, ui);
+            } else {
+                showSortedTaskList(parts, tasks, ui);
+            }
             break;
         case MARK:
             markTask(parts, tasks, ui, storage);
@@ -101,14 +245,25 @@ public class Parser {
             addEvent(parts, tasks, ui, storage);
             break;
         case FIND:
-            findTasks(parts, tasks, ui);
+            findTasks(parts, tasks, ui, cancellation);
             break;
         case SORT:
-            sortTasks(tasks, ui, storage);
+            sortTasks(tasks, ui, storage, cancellation);
+            break;
+        case DUE:
+            showDueTasks(parts, tasks, ui);
+            break;
+        case OVERDUE:
+            showOverdueTasks(tasks, ui);
+            break;
+        case ON:
+            showTasksOn(parts, tasks, ui);
+            break;
+        case BATCH:
+            runBatch(parts, tasks, ui, storage);
+            break;
+        default:
             break;
-        }
-        } catch (IllegalArgumentException e) {
-            throw new ChipException("I don't understand that command. Type 'help' to see available commands.");
         }
     }
 
@@ -118,7 +273,7 @@ public class Parser {
      * @param tasks the task list to display
      * @param ui the user interface for showing messages
      */
-    private static void showTaskList(TaskList tasks, Ui ui) {
+    private static void showTaskList(TaskList tasks, ResponseSink ui) {
         assert tasks != null : "TaskList cannot be null";
         assert ui != null : "Ui cannot be null";
         
@@ -130,59 +285,163 @@ public class Parser {
         }
     }
 
+    /**
+     * Displays one page of the task list, so the response grows with the page size rather than
+     * the list. A page is chosen either by number with "--page", or by a cursor with "--after",
+     * which starts right after the given task. A cursor given as a task id stays valid when tasks
+     * before it are added or deleted, and when the task itself is deleted the page starts at the
+     * task added next after it, so paging through a list that changes skips nothing.
+     */
+    private static void showTaskPage(String options, TaskList tasks, ResponseSink ui) throws ChipException {
+        int page = 0;
+        int cursorStart = -1;
+        int size = DEFAULT_PAGE_SIZE;
+        String[] tokens = options.trim().split(COMMAND_SEPARATOR);
+        String option = null;
+        for (String token : tokens) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (option == null) {
+                option = token;
+                continue;
+            }
+            switch (option) {
+            case LIST_PAGE_OPTION:
+                page = parsePositive(token, ERROR_PAGE_NUMBER);
+                break;
+            case LIST_SIZE_OPTION:
+                size = parsePositive(token, ERROR_PAGE_SIZE);
+                if (size > MAX_PAGE_SIZE) {
+                    throw new ChipException(ERROR_PAGE_SIZE);
+                }
+                break;
+            case LIST_AFTER_OPTION:
+                cursorStart = parseCursor(token, tasks);
+                break;
+            default:
+                throw new ChipException(ERROR_LIST_OPTIONS);
+            }
+            option = null;
+        }
+        if (option != null || (page > 0) == (cursorStart >= 0)) {
+            // An option without a value, or not exactly one of --page and --after
+            throw new ChipException(ERROR_LIST_OPTIONS);
+        }
+        int start = page > 0 ? (int) Math.min(Integer.MAX_VALUE, (long) (page - 1) * size) : cursorStart;
+
+        int end = (int) Math.min(tasks.size(), (long) start + size);
+        if (start >= end) {
+            ui.showMessage(MESSAGE_PAGE_EMPTY);
+            return;
+        }
+        ui.showMessage(String.format(MESSAGE_PAGE_HEADER, start + 1, end, tasks.size()));
+        for (int index = start; index < end; index++) {
+            ui.showMessage(tasks.formatTaskForDisplay(index, tasks.getTask(index)));
+        }
+        if (end < tasks.size()) {
+            ui.showMessage(String.format(MESSAGE_PAGE_MORE, tasks.getTask(end - 1).getId(), size));
+        }
+    }
+
+    private static int parsePositive(String value, String errorMessage) throws ChipException {
+        int number;
+        try {
+            number = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ChipException(errorMessage);
+        }
+        if (number < 1) {
+            throw new ChipException(errorMessage);
+        }
+        return number;
+    }
+
+    /**
+     * Displays all tasks in the order of a sort key, numbered by their position in the list so
+     * the numbers can be used with mark, unmark and delete. The list itself keeps its order.
+     */
+    private static void showSortedTaskList(String[] parts, TaskList tasks, ResponseSink ui) throws ChipException {
+        assert parts != null : "Command parts cannot be null";
+        String argument = parts[1].trim();
+        if (!argument.regionMatches(true, 0, SORTED_BY_PREFIX, 0, SORTED_BY_PREFIX.length())) {
+            throw new ChipException(ERROR_SORT_KEY);
+        }
+        TaskSortKey key = TaskSortKey.fromName(argument.substring(SORTED_BY_PREFIX.length()).trim());
+        if (key == null) {
+            throw new ChipException(ERROR_SORT_KEY);
+        }
+
+        ui.showMessage(String.format(MESSAGE_SORTED_LIST_HEADER, key.name().toLowerCase()));
+        tasks.forEachSortedBy(key, (task, position) -> {
+            ui.showMessage(tasks.formatTaskForDisplay(position, task));
+        });
+    }
+
     /**
      * Marks a specified task as completed.
      */
-    private static void markTask(String[] parts, TaskList tasks, Ui ui, Storage storage) throws ChipException {
+    private static void markTask(String[] parts, TaskList tasks, ResponseSink ui, TaskRepository storage) throws ChipException {
         assert parts != null : "Command parts cannot be null";
         assert tasks != null : "TaskList cannot be null";
         assert ui != null : "Ui cannot be null";
         assert storage != null : "Storage cannot be null";
         
         validateCommandParts(parts, ERROR_MARK_TASK);
-        int taskNumber = parseTaskNumber(parts[1]);
-        Task task = tasks.getTask(taskNumber);
+        int[] indexes = parseTaskTargets(parts[1], tasks);
+        if (indexes.length != 1) {
+            markTasks(indexes, tasks, ui, storage);
+            return;
+        }
+        int taskNumber = indexes[0];
+        Task task = tasks.markTask(taskNumber);
         assert task != null : "Retrieved task should not be null";
-        
-        task.markAsDone();
         assert task.getStatusIcon().equals("X") : "Task should show as done after marking";
         
         showTaskOperationResult(ui, MESSAGE_TASK_MARKED, task);
-        storage.save(tasks.getTasks());
+        storage.recordMark(tasks.getTasks(), taskNumber, true);
     }
 
     /**
      * Marks a specified task as not completed.
      */
-    private static void unmarkTask(String[] parts, TaskList tasks, Ui ui, Storage storage) throws ChipException {
+    private static void unmarkTask(String[] parts, TaskList tasks, ResponseSink ui, TaskRepository storage) throws ChipException {
         assert parts != null : "Command parts cannot be null";
         assert tasks != null : "TaskList cannot be null";
         assert ui != null : "Ui cannot be null";
         assert storage != null : "Storage cannot be null";
         
         validateCommandParts(parts, ERROR_UNMARK_TASK);
-        int taskNumber = parseTaskNumber(parts[1]);
-        Task task = tasks.getTask(taskNumber);
+        int[] indexes = parseTaskTargets(parts[1], tasks);
+        if (indexes.length != 1) {
+            unmarkTasks(indexes, tasks, ui, storage);
+            return;
+        }
+        int taskNumber = indexes[0];
+        Task task = tasks.unmarkTask(taskNumber);
         assert task != null : "Retrieved task should not be null";
-        
-        task.markAsNotDone();
         assert task.getStatusIcon().equals(" ") : "Task should show as not done after unmarking";
         
         showTaskOperationResult(ui, MESSAGE_TASK_UNMARKED, task);
-        storage.save(tasks.getTasks());
+        storage.recordMark(tasks.getTasks(), taskNumber, false);
     }
 
     /**
      * Deletes a specified task from the task list.
      */
-    private static void deleteTask(String[] parts, TaskList tasks, Ui ui, Storage storage) throws ChipException {
+    private static void deleteTask(String[] parts, TaskList tasks, ResponseSink ui, TaskRepository storage) throws ChipException {
         assert parts != null : "Command parts cannot be null";
         assert tasks != null : "TaskList cannot be null";
         assert ui != null : "Ui cannot be null";
         assert storage != null : "Storage cannot be null";
         
         validateCommandParts(parts, ERROR_DELETE_TASK);
-        int taskNumber = parseTaskNumber(parts[1]);
+        int[] indexes = parseTaskTargets(parts[1], tasks);
+        if (indexes.length != 1) {
+            deleteTasks(indexes, tasks, ui, storage);
+            return;
+        }
+        int taskNumber = indexes[0];
         
         int initialSize = tasks.size();
         assert taskNumber >= 0 : "Task number should be non-negative after conversion";
@@ -194,13 +453,56 @@ public class Parser {
         
         showTaskOperationResult(ui, MESSAGE_TASK_DELETED, removedTask);
         ui.showMessage(String.format(MESSAGE_TASK_COUNT, tasks.size()));
-        storage.save(tasks.getTasks());
+        storage.recordDelete(tasks.getTasks(), taskNumber, removedTask);
+    }
+
+    /**
+     * Marks several tasks as completed in one operation, persisted once.
+     */
+    private static void markTasks(int[] indexes, TaskList tasks, ResponseSink ui, TaskRepository storage) throws ChipException {
+        if (indexes.length == 0) {
+            ui.showMessage(MESSAGE_NO_MATCHES);
+            return;
+        }
+        tasks.markTasks(indexes);
+        ui.showMessage(String.format(MESSAGE_TASKS_MARKED, indexes.length));
+        storage.recordMark(tasks.getTasks(), indexes, true);
+    }
+
+    /**
+     * Marks several tasks as not completed in one operation, persisted once.
+     */
+    private static void unmarkTasks(int[] indexes, TaskList tasks, ResponseSink ui, TaskRepository storage) throws ChipException {
+        if (indexes.length == 0) {
+            ui.showMessage(MESSAGE_NO_MATCHES);
+            return;
+        }
+        tasks.unmarkTasks(indexes);
+        ui.showMessage(String.format(MESSAGE_TASKS_UNMARKED, indexes.length));
+        storage.recordMark(tasks.getTasks(), indexes, false);
+    }
+
+    /**
+     * Deletes several tasks in a single pass over the task list, persisted once.
+     */
+    private static void deleteTasks(int[] indexes, TaskList tasks, ResponseSink ui, TaskRepository storage) throws ChipException {
+        if (indexes.length == 0) {
+            ui.showMessage(MESSAGE_NO_MATCHES);
+            return;
+        }
+        int initialSize = tasks.size();
+        List<Task> removedTasks = tasks.deleteTasks(indexes);
+        assert tasks.size() == initialSize - indexes.length : "Task list should shrink by the number deleted";
+
+        ui.showMessage(String.format(MESSAGE_TASKS_DELETED, indexes.length));
+        ui.showMessage(String.format(MESSAGE_TASK_COUNT, tasks.size()));
+        storage.recordDelete(tasks.getTasks(), indexes, removedTasks);
     }
 
     /**
      * Adds a new todo task to the task list.
      */
-    private static void addTodo(String[] parts, TaskList tasks, Ui ui, Storage storage) throws ChipException {
+    private static void addTodo(String[] parts, TaskList tasks, ResponseSink ui, TaskRepository storage) throws ChipException {
         assert parts != null : "Command parts cannot be null";
         assert tasks != null : "TaskList cannot be null";
         assert ui != null : "Ui cannot be null";
@@ -217,23 +519,22 @@ public class Parser {
         assert tasks.size() == initialSize + 1 : "Task list should be larger after adding";
         
         showTaskAddedResult(ui, newTodo, tasks.size());
-        storage.save(tasks.getTasks());
+        storage.recordAdd(tasks.getTasks(), newTodo);
     }
 
     /**
      * Adds a new deadline task to the task list.
      */
-    private static void addDeadline(String[] parts, TaskList tasks, Ui ui, Storage storage) throws ChipException {
+    private static void addDeadline(String[] parts, TaskList tasks, ResponseSink ui, TaskRepository storage) throws ChipException {
         assert parts != null : "Command parts cannot be null";
         assert tasks != null : "TaskList cannot be null";
         assert ui != null : "Ui cannot be null";
         assert storage != null : "Storage cannot be null";
         
         validateCommandParts(parts, ERROR_DEADLINE_EMPTY);
-        String[] deadlineParts = parts[1].split(DEADLINE_SEPARATOR);
-        assert deadlineParts != null : "Deadline parts should not be null after split";
+        String[] deadlineParts = splitAround(parts[1], DEADLINE_SEPARATOR);
         
-        if (deadlineParts.length < COMMAND_PART_LIMIT) {
+        if (deadlineParts == null) {
             throw new ChipException(ERROR_DEADLINE_FORMAT);
         }
         
@@ -250,23 +551,22 @@ public class Parser {
         assert tasks.size() == initialSize + 1 : "Task list should be larger after adding";
         
         showTaskAddedResult(ui, newDeadline, tasks.size());
-        storage.save(tasks.getTasks());
+        storage.recordAdd(tasks.getTasks(), newDeadline);
     }
 
     /**
      * Adds a new event task to the task list.
      */
-    private static void addEvent(String[] parts, TaskList tasks, Ui ui, Storage storage) throws ChipException {
+    private static void addEvent(String[] parts, TaskList tasks, ResponseSink ui, TaskRepository storage) throws ChipException {
         assert parts != null : "Command parts cannot be null";
         assert tasks != null : "TaskList cannot be null";
         assert ui != null : "Ui cannot be null";
         assert storage != null : "Storage cannot be null";
         
         validateCommandParts(parts, ERROR_EVENT_EMPTY);
-        String[] eventParts = parts[1].split(EVENT_FROM_SEPARATOR);
-        assert eventParts != null : "Event parts should not be null after split";
+        String[] eventParts = splitAround(parts[1], EVENT_FROM_SEPARATOR);
         
-        if (eventParts.length < COMMAND_PART_LIMIT) {
+        if (eventParts == null) {
             throw new ChipException(ERROR_EVENT_FROM_FORMAT);
         }
         
@@ -274,15 +574,17 @@ public class Parser {
             throw new ChipException(ERROR_EVENT_EMPTY);
         }
         
-        String[] timeParts = eventParts[1].split(EVENT_TO_SEPARATOR);
-        assert timeParts != null : "Time parts should not be null after split";
+        String[] timeParts = splitAround(eventParts[1], EVENT_TO_SEPARATOR);
         
-        if (timeParts.length < COMMAND_PART_LIMIT) {
+        if (timeParts == null) {
             throw new ChipException(ERROR_EVENT_TO_FORMAT);
         }
         
         int initialSize = tasks.size();
-        Task newEvent = new Event(eventParts[0].trim(), timeParts[0].trim(), timeParts[1].trim());
+        Event newEvent = new Event(eventParts[0].trim(), timeParts[0].trim(), timeParts[1].trim());
+        if (newEvent.getToMinute() < newEvent.getFromMinute()) {
+            throw new ChipException(ERROR_EVENT_ORDER);
+        }
         assert newEvent != null : "Created event should not be null";
         assert newEvent.toString().startsWith("[E]") : "Event should have correct type indicator";
         
@@ -290,13 +592,14 @@ public class Parser {
         assert tasks.size() == initialSize + 1 : "Task list should be larger after adding";
         
         showTaskAddedResult(ui, newEvent, tasks.size());
-        storage.save(tasks.getTasks());
+        storage.recordAdd(tasks.getTasks(), newEvent);
     }
 
     /**
      * Finds and displays tasks that contain the specified keyword.
      */
-    private static void findTasks(String[] parts, TaskList tasks, Ui ui) throws ChipException {
+    private static void findTasks(String[] parts, TaskList tasks, ResponseSink ui, Cancellation cancellation)
+            throws ChipException {
         assert parts != null : "Command parts cannot be null";
         assert tasks != null : "TaskList cannot be null";
         assert ui != null : "Ui cannot be null";
@@ -305,7 +608,7 @@ public class Parser {
         String keyword = parts[1];
         assert keyword != null : "Keyword should not be null";
         
-        ArrayList<Task> matchingTasks = tasks.findTasks(keyword);
+        ArrayList<Task> matchingTasks = tasks.findTasks(keyword, cancellation);
         assert matchingTasks != null : "Matching tasks should not be null";
         assert matchingTasks.size() <= tasks.size() : "Matching tasks cannot exceed total tasks";
         if (matchingTasks.isEmpty()) {
@@ -320,6 +623,125 @@ public class Parser {
         }
     }
     
+    /**
+     * Displays deadlines due and events taking place within a date range.
+     */
+    private static void showDueTasks(String[] parts, TaskList tasks, ResponseSink ui) throws ChipException {
+        validateCommandParts(parts, ERROR_DUE_RANGE);
+        String[] dates = parts[1].trim().split(COMMAND_SEPARATOR);
+        if (dates.length != COMMAND_PART_LIMIT) {
+            throw new ChipException(ERROR_DUE_RANGE);
+        }
+
+        LocalDate from = parseDate(dates[0]);
+        LocalDate to = parseDate(dates[1]);
+        if (from.isAfter(to)) {
+            throw new ChipException(ERROR_DATE_ORDER);
+        }
+
+        ArrayList<Task> dueTasks = tasks.findDue(from.atStartOfDay(), to.atTime(LocalTime.MAX));
+        showMatchingTasks(ui, String.format(MESSAGE_DUE_HEADER, from, to), dueTasks, tasks);
+    }
+
+    /**
+     * Displays deadlines that are past due and not yet done.
+     */
+    private static void showOverdueTasks(TaskList tasks, ResponseSink ui) {
+        ArrayList<Task> overdueTasks = tasks.findOverdue(LocalDateTime.now());
+        showMatchingTasks(ui, MESSAGE_OVERDUE_HEADER, overdueTasks, tasks);
+    }
+
+    /**
+     * Displays deadlines due and events taking place on a single date.
+     */
+    private static void showTasksOn(String[] parts, TaskList tasks, ResponseSink ui) throws ChipException {
+        validateCommandParts(parts, ERROR_ON_DATE);
+        LocalDate date = parseDate(parts[1].trim());
+
+        ArrayList<Task> tasksOn = tasks.findDue(date.atStartOfDay(), date.atTime(LocalTime.MAX));
+        showMatchingTasks(ui, String.format(MESSAGE_ON_HEADER, date), tasksOn, tasks);
+    }
+
+    /**
+     * Runs the commands in a file as one batch and reports the failures.
+     * Blank lines and lines starting with '#' are skipped.
+     */
+    private static void runBatch(String[] parts, TaskList tasks, ResponseSink ui, TaskRepository storage) throws ChipException {
+        validateCommandParts(parts, ERROR_BATCH_FILE);
+        String argument = parts[1].trim();
+        boolean isAtomic = argument.startsWith(BATCH_ATOMIC_FLAG + COMMAND_SEPARATOR);
+        String fileName = isAtomic ? argument.substring(BATCH_ATOMIC_FLAG.length()).trim() : argument;
+        if (fileName.isEmpty() || fileName.equals(BATCH_ATOMIC_FLAG)) {
+            throw new ChipException(ERROR_BATCH_FILE);
+        }
+
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(Path.of(fileName), StandardCharsets.UTF_8);
+        } catch (IOException | InvalidPathException e) {
+            throw new ChipException(ERROR_BATCH_READ + fileName);
+        }
+        List<String> commands = new ArrayList<>();
+        List<Integer> lineNumbers = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (!line.isEmpty() && !line.startsWith(BATCH_COMMENT_PREFIX)) {
+                commands.add(line);
+                lineNumbers.add(i + 1);
+            }
+        }
+
+        BatchResult result = BatchRunner.run(commands, isAtomic, tasks, storage);
+        List<String> responses = result.getResponses();
+        List<Integer> failedIndexes = result.getFailedIndexes();
+        if (result.isRolledBack()) {
+            int failedIndex = failedIndexes.get(0);
+            int lineNumber = lineNumbers.get(failedIndex);
+            ui.showMessage(String.format(MESSAGE_BATCH_ROLLED_BACK, fileName));
+            ui.showMessage(String.format(MESSAGE_BATCH_FAILURE, lineNumber, responses.get(failedIndex)));
+            return;
+        }
+
+        ui.showMessage(String.format(MESSAGE_BATCH_SUMMARY, commands.size(), fileName,
+                result.getSucceededCount(), failedIndexes.size()));
+        for (int index : failedIndexes) {
+            ui.showMessage(String.format(MESSAGE_BATCH_FAILURE, lineNumbers.get(index), responses.get(index)));
+        }
+        ui.showMessage(String.format(MESSAGE_TASK_TOTAL, tasks.size()));
+        if (result.getSaveError() != null) {
+            throw new ChipException(result.getSaveError());
+        }
+    }
+
+    /**
+     * Shows a numbered list of matching tasks under a header, or a message if there are none.
+     */
+    private static void showMatchingTasks(ResponseSink ui, String header, ArrayList<Task> matchingTasks, TaskList tasks) {
+        if (matchingTasks.isEmpty()) {
+            ui.showMessage(MESSAGE_NO_MATCHES);
+            return;
+        }
+        ui.showMessage(header);
+        for (int i = 0; i < matchingTasks.size(); i++) {
+            ui.showMessage(tasks.formatTaskForDisplay(i, matchingTasks.get(i)));
+        }
+    }
+
+    /**
+     * Parses a date in yyyy-MM-dd format.
+     *
+     * @param dateStr the date as a string
+     * @return the parsed date
+     * @throws ChipException if the date is invalid
+     */
+    private static LocalDate parseDate(String dateStr) throws ChipException {
+        try {
+            return LocalDate.parse(dateStr);
+        } catch (DateTimeParseException e) {
+            throw new ChipException(ERROR_DATE_FORMAT);
+        }
+    }
+
     /**
      * Validates that command parts contain the required arguments.
      *
@@ -333,6 +755,108 @@ public class Parser {
         }
     }
     
+    /**
+     * Resolves the targets of a mark, unmark or delete command to 0-based indexes.
+     * Targets are either a comma-separated list of task references and ranges of them, such as
+     * "1,4,9-20" or "#12", or one of the predicates "done", "undone" and "all".
+     *
+     * @param targets the targets from the command
+     * @param tasks the task list the targets point into
+     * @return the distinct 0-based indexes in ascending order
+     * @throws ChipException if a target is malformed or no such task exists
+     */
+    private static int[] parseTaskTargets(String targets, TaskList tasks) throws ChipException {
+        String trimmed = targets.trim().toLowerCase();
+        switch (trimmed) {
+        case TARGET_DONE:
+            return tasks.findIndexes(TaskFilter.all().done());
+        case TARGET_UNDONE:
+            return tasks.findIndexes(TaskFilter.all().undone());
+        case TARGET_ALL:
+            return tasks.findIndexes(TaskFilter.all());
+        default:
+            break;
+        }
+
+        BitSet selected = new BitSet(tasks.size());
+        for (String target : trimmed.split(TARGET_SEPARATOR)) {
+            int rangeSeparator = target.indexOf(RANGE_SEPARATOR);
+            if (rangeSeparator <= 0) {
+                selected.set(parseTaskIndex(target, tasks));
+                continue;
+            }
+            int from = parseTaskIndex(target.substring(0, rangeSeparator), tasks);
+            int to = parseTaskIndex(target.substring(rangeSeparator + 1), tasks);
+            if (from > to) {
+                throw new ChipException(String.format(ERROR_RANGE_ORDER, target.trim()));
+            }
+            selected.set(from, to + 1);
+        }
+        return selected.stream().toArray();
+    }
+
+    /**
+     * Resolves a task reference to a 0-based index. The reference is either a 1-based position
+     * in the list or a stable task id prefixed with '#'.
+     *
+     * @param reference the task reference from the command
+     * @param tasks the task list the reference points into
+     * @return the 0-based index of the task
+     * @throws ChipException if the reference is malformed or no such task exists
+     */
+    private static int parseTaskIndex(String reference, TaskList tasks) throws ChipException {
+        String trimmed = reference.trim();
+        if (trimmed.startsWith(TASK_ID_PREFIX)) {
+            int id = parseTaskId(trimmed);
+            int index = tasks.indexOfId(id);
+            if (index < 0) {
+                throw new ChipException(String.format(ERROR_NO_TASK_WITH_ID, id));
+            }
+            return index;
+        }
+
+        int index = parseTaskNumber(trimmed);
+        if (index >= tasks.size()) {
+            throw new ChipException(String.format(ERROR_NO_TASK_NUMBERED, index + 1));
+        }
+        return index;
+    }
+
+    /**
+     * Resolves the cursor of a page to the 0-based index the page starts at. A cursor is a task
+     * reference as for {@link #parseTaskIndex}, but a task id that is no longer in the list still
+     * resolves: the page then starts at the task with the next greater id.
+     *
+     * @param reference the task reference from the command
+     * @param tasks the task list the reference points into
+     * @return the 0-based index of the first task on the page, which may be the size of the list
+     * @throws ChipException if the reference is malformed or no task has that number
+     */
+    private static int parseCursor(String reference, TaskList tasks) throws ChipException {
+        String trimmed = reference.trim();
+        if (!trimmed.startsWith(TASK_ID_PREFIX)) {
+            return parseTaskIndex(trimmed, tasks) + 1;
+        }
+        int id = parseTaskId(trimmed);
+        int index = tasks.indexOfId(id);
+        if (index >= 0) {
+            return index + 1;
+        }
+        int nextIndex = tasks.indexOfNextId(id);
+        return nextIndex < 0 ? tasks.size() : nextIndex;
+    }
+
+    /**
+     * Parses a task id prefixed with '#'.
+     */
+    private static int parseTaskId(String reference) throws ChipException {
+        try {
+            return Integer.parseInt(reference.substring(TASK_ID_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new ChipException(ERROR_INVALID_TASK_ID);
+        }
+    }
+
     /**
      * Parses a task number from string input, converting from 1-based to 0-based indexing.
      *
@@ -359,7 +883,7 @@ public class Parser {
      * @param message the message to display
      * @param task the task that was operated on
      */
-    private static void showTaskOperationResult(Ui ui, String message, Task task) {
+    private static void showTaskOperationResult(ResponseSink ui, String message, Task task) {
         ui.showMessage(message);
         ui.showMessage("   " + task);
     }
@@ -371,7 +895,7 @@ public class Parser {
      * @param task the task that was added
      * @param taskCount the current number of tasks
      */
-    private static void showTaskAddedResult(Ui ui, Task task, int taskCount) {
+    private static void showTaskAddedResult(ResponseSink ui, Task task, int taskCount) {
         ui.showMessage(MESSAGE_TASK_ADDED);
         ui.showMessage("   " + task);
         ui.showMessage(String.format(MESSAGE_TASK_COUNT, taskCount));
@@ -383,14 +907,16 @@ public class Parser {
      * @param tasks the task list to sort
      * @param ui the user interface for showing messages
      * @param storage the storage component for saving tasks
+     * @param cancellation the cancellation watched while sorting
      * @throws ChipException if saving fails
      */
-    private static void sortTasks(TaskList tasks, Ui ui, Storage storage) throws ChipException {
+    private static void sortTasks(TaskList tasks, ResponseSink ui, TaskRepository storage, Cancellation cancellation)
+            throws ChipException {
         assert tasks != null : "TaskList cannot be null";
         assert ui != null : "Ui cannot be null";
         assert storage != null : "Storage cannot be null";
         
-        tasks.sortByDescription();
+        tasks.sortByDescription(cancellation);
         ui.showMessage(MESSAGE_TASKS_SORTED);
         storage.save(tasks.getTasks());
     }
@@ -400,7 +926,7 @@ public class Parser {
      *
      * @param ui the user interface for showing messages
      */
-    private static void showHelp(Ui ui) {
+    private static void showHelp(ResponseSink ui) {
         assert ui != null : "Ui cannot be null";
         
         ui.showMessage(MESSAGE_HELP_HEADER);
@@ -408,11 +934,20 @@ public class Parser {
         ui.showMessage(" deadline <description> /by <date> - Add a task with deadline");
         ui.showMessage(" event <description> /from <start> /to <end> - Add an event");
         ui.showMessage(" list - Show all tasks");
+        ui.showMessage(" list sorted by <description|deadline|status> - Show all tasks in another order");
+        ui.showMessage(" list --page <number> [--size <count>] - Show one page of tasks");
+        ui.showMessage("   (or continue after a task, e.g. list --after #40)");
         ui.showMessage(" mark <number> - Mark task as done");
         ui.showMessage(" unmark <number> - Mark task as not done");
         ui.showMessage(" delete <number> - Remove a task");
+        ui.showMessage("   (mark, unmark and delete also accept a task id, e.g. mark #12)");
+        ui.showMessage("   (and several tasks at once, e.g. mark 3-5, delete 1,4,9-20, delete done)");
         ui.showMessage(" find <keyword> - Search for tasks");
         ui.showMessage(" sort - Sort tasks alphabetically");
+        ui.showMessage(" due <from> <to> - Show deadlines and events between two dates (yyyy-MM-dd)");
+        ui.showMessage(" overdue - Show unfinished deadlines that are past due");
+        ui.showMessage(" on <date> - Show deadlines and events on a date (yyyy-MM-dd)");
+        ui.showMessage(" batch [--atomic] <file> - Run the commands in a file, saving once at the end");
         ui.showMessage(" help - Show this help message");
         ui.showMessage(" bye - Exit the application");
     }
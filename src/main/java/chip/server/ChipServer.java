@@ -0,0 +1,268 @@
+package chip.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import chip.Chip;
+import chip.ChipException;
+
+/**
+ * Serves one Chip to many clients at once over a line-based TCP protocol, without a GUI.
+ *
+ * <p>A client sends one command per line. The server answers with the response lines followed by a
+ * line holding a single ".". A response line that itself starts with "." gets another "." in front,
+ * so the terminator is never ambiguous. Sending "bye" ends the session; the server keeps running.
+ * Responses are written as they are produced, so a long one is never held in memory as a whole.
+ * A client that stops reading its response for longer than the write timeout is disconnected.
+ *
+ * <p>Each connection is served on its own thread. All clients share the task list, whose read-write
+ * lock lets queries such as list and find run side by side while changes run one at a time.
+ *
+ * <p>In multi-user mode every user has their own tasks, kept in a {@link TenantRegistry}. A session
+ * then starts with "user &lt;name&gt;", and each command pins that user's tasks only while it runs.
+ */
+public class ChipServer {
+
+    // Constants
+    private static final int DEFAULT_PORT = 7878;
+    private static final String DEFAULT_FILE_PATH = "./data/chip.txt";
+    private static final int BACKLOG = 128;
+    private static final String BYE_COMMAND = "bye";
+    private static final String GOODBYE_MESSAGE = "Bye. Hope to see you again soon!";
+    private static final String END_OF_RESPONSE = ".";
+    private static final String NEWLINE = "\n";
+    private static final String USER_COMMAND = "user ";
+    private static final String TENANTS_FLAG = "--users";
+    private static final int TENANT_CAPACITY = 1000;
+    private static final String ERROR_PREFIX = "OOPS!!! ";
+    private static final String ERROR_NO_USER =
+            "Please start with: user <name>, where the name has 1 to 64 letters, digits, '-' or '_'.";
+    private static final String MESSAGE_HELLO = "Hello %s! What can I do for you?";
+    private static final long DEFAULT_WRITE_TIMEOUT_MILLIS = 30_000;
+
+    private final Chip chip;
+    private final TenantRegistry tenants;
+    private final ServerSocket serverSocket;
+    private final ExecutorService clients;
+    private volatile long writeTimeoutMillis = DEFAULT_WRITE_TIMEOUT_MILLIS;
+
+    /**
+     * Constructs a ChipServer listening on the loopback interface.
+     *
+     * @param chip the Chip whose tasks are served
+     * @param port the port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public ChipServer(Chip chip, int port) throws IOException {
+        this(chip, null, port);
+        assert chip != null : "Chip cannot be null";
+    }
+
+    /**
+     * Constructs a ChipServer in multi-user mode, listening on the loopback interface.
+     *
+     * @param tenants the registry holding the tasks of every user
+     * @param port the port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public ChipServer(TenantRegistry tenants, int port) throws IOException {
+        this(null, tenants, port);
+        assert tenants != null : "Tenant registry cannot be null";
+    }
+
+    private ChipServer(Chip chip, TenantRegistry tenants, int port) throws IOException {
+        this.chip = chip;
+        this.tenants = tenants;
+        serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        // Virtual threads would suit this better, but need a newer JDK than the build targets
+        clients = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "chip-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the local port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Sets how long a response may wait for a client that stopped reading before it is disconnected.
+     *
+     * @param millis the write timeout in milliseconds
+     */
+    void setWriteTimeout(long millis) {
+        assert millis > 0 : "Timeout must be positive";
+        writeTimeoutMillis = millis;
+    }
+
+    /**
+     * Starts accepting clients on a separate thread.
+     */
+    public void start() {
+        new Thread(this::acceptClients, "chip-acceptor").start();
+    }
+
+    /**
+     * Stops accepting clients, disconnects the connected ones and flushes the tasks to storage.
+     */
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // The socket is unusable either way.
+        }
+        clients.shutdownNow();
+        if (tenants != null) {
+            tenants.close();
+        } else {
+            chip.close();
+        }
+    }
+
+    private void acceptClients() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                clients.execute(() -> serve(socket));
+            } catch (IOException e) {
+                // The server socket was closed, which ends the loop.
+            }
+        }
+    }
+
+    /**
+     * Answers the commands of one client until it says bye or disconnects.
+     */
+    private void serve(Socket socket) {
+        try (socket;
+                BufferedReader input = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                Writer output = new BufferedWriter(
+                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            String command;
+            String tenantId = null;
+            while ((command = input.readLine()) != null) {
+                if (command.trim().equalsIgnoreCase(BYE_COMMAND)) {
+                    writeResponse(output, GOODBYE_MESSAGE);
+                    break;
+                }
+                if (tenants == null) {
+                    streamResponse(socket, output, chip, command);
+                } else if (tenantId == null) {
+                    tenantId = parseTenantId(command);
+                    writeResponse(output, tenantId == null
+                            ? ERROR_PREFIX + ERROR_NO_USER
+                            : String.format(MESSAGE_HELLO, tenantId));
+                } else {
+                    streamTenantResponse(socket, output, tenantId, command);
+                }
+            }
+        } catch (IOException e) {
+            // The client went away; its commands have already been applied.
+        }
+    }
+
+    private static String parseTenantId(String command) {
+        if (!command.startsWith(USER_COMMAND)) {
+            return null;
+        }
+        String tenantId = command.substring(USER_COMMAND.length()).trim();
+        return TenantRegistry.isValidTenantId(tenantId) ? tenantId : null;
+    }
+
+    /**
+     * Runs a command against a user's tasks, keeping them pinned in the registry meanwhile.
+     */
+    private void streamTenantResponse(Socket socket, Writer output, String tenantId, String command)
+            throws IOException {
+        Chip tenantChip;
+        try {
+            tenantChip = tenants.acquire(tenantId);
+        } catch (ChipException e) {
+            writeResponse(output, ERROR_PREFIX + e.getMessage());
+            return;
+        }
+        try {
+            streamResponse(socket, output, tenantChip, command);
+        } finally {
+            tenants.release(tenantId);
+        }
+    }
+
+    /**
+     * Writes the response to a command as it is produced, so a long response such as the list of
+     * a huge task list is never held in memory as a whole. The chunks are written by another
+     * thread, see {@link ResponseStream}, so the command never waits on the socket with the task
+     * list locked.
+     */
+    private void streamResponse(Socket socket, Writer output, Chip chip, String command) throws IOException {
+        ResponseStream stream = new ResponseStream(output, socket, clients, writeTimeoutMillis);
+        chip.streamResponse(command, stream);
+        stream.finish();
+        output.write(END_OF_RESPONSE + NEWLINE);
+        output.flush();
+    }
+
+    private static void writeResponse(Writer output, String response) throws IOException {
+        writeLines(output, response);
+        output.write(END_OF_RESPONSE + NEWLINE);
+        output.flush();
+    }
+
+    /**
+     * Writes lines of a response, doubling the "." at the start of any line that has one.
+     */
+    static void writeLines(Writer output, String lines) throws IOException {
+        int start = 0;
+        while (start < lines.length()) {
+            int end = lines.indexOf(NEWLINE, start);
+            if (end < 0) {
+                end = lines.length();
+            }
+            if (lines.startsWith(END_OF_RESPONSE, start)) {
+                output.write(END_OF_RESPONSE);
+            }
+            output.write(lines, start, end - start);
+            output.write(NEWLINE);
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Entry point for the headless server.
+     *
+     * @param args the port to listen on and the data file, both optional; "--users &lt;directory&gt;"
+     *             in place of the data file serves every user from their own file in the directory
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        ChipServer server;
+        if (args.length > 2 && args[1].equals(TENANTS_FLAG)) {
+            server = new ChipServer(new TenantRegistry(Path.of(args[2]), TENANT_CAPACITY), port);
+        } else {
+            String filePath = args.length > 1 ? args[1] : DEFAULT_FILE_PATH;
+            server = new ChipServer(new Chip(filePath), port);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.start();
+        System.out.println("Chip is listening on port " + server.getPort());
+    }
+}
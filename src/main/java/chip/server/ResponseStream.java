@@ -0,0 +1,118 @@
+package chip.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Carries the chunks of one response from the command producing them to the client's socket.
+ *
+ * <p>A command produces its output while it holds the task list's lock, so it must never wait on
+ * the socket: a client that stops reading would fill the send buffer and keep the lock held.
+ * The command therefore only puts chunks on a short queue, and a separate thread takes them off
+ * and writes them. If the queue stays full for longer than the write timeout, the client is taken
+ * to have stalled: the rest of the output is dropped, so the command finishes and releases the
+ * lock, and the connection is closed, which also frees the writing thread.
+ */
+class ResponseStream implements Consumer<String> {
+
+    // Constants
+    private static final int QUEUE_CAPACITY = 8;
+    /** Marks the end of the response on the queue; compared by identity */
+    private static final String END = new String();
+
+    private final BlockingQueue<String> chunks = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final CountDownLatch written = new CountDownLatch(1);
+    private final Writer output;
+    private final Closeable connection;
+    private final long timeoutMillis;
+    private volatile IOException failure;
+    private volatile boolean isStalled;
+
+    /**
+     * Constructs a ResponseStream and starts the thread writing its chunks.
+     *
+     * @param output the client's output
+     * @param connection closed if the client stalls
+     * @param writers runs the thread writing the chunks
+     * @param timeoutMillis how long a chunk may wait for the client before it counts as stalled
+     */
+    ResponseStream(Writer output, Closeable connection, Executor writers, long timeoutMillis) {
+        assert output != null && connection != null : "Output and connection cannot be null";
+        assert timeoutMillis > 0 : "Timeout must be positive";
+        this.output = output;
+        this.connection = connection;
+        this.timeoutMillis = timeoutMillis;
+        writers.execute(this::writeChunks);
+    }
+
+    /**
+     * Queues a chunk of the response, or drops it if the client has stalled or gone away.
+     * Waits at most the write timeout.
+     *
+     * @param chunk whole lines, each ending in a newline
+     */
+    @Override
+    public void accept(String chunk) {
+        if (isStalled || failure != null) {
+            return;
+        }
+        if (!offer(chunk)) {
+            isStalled = true;
+        }
+    }
+
+    /**
+     * Waits until every chunk has been written. Call it after the command has released its lock.
+     *
+     * @throws IOException if the client stalled, which closes the connection, or the connection failed
+     */
+    void finish() throws IOException {
+        boolean isWritten = false;
+        if (!isStalled && offer(END)) {
+            try {
+                isWritten = written.await(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        if (!isWritten) {
+            connection.close();
+            throw new IOException("The client stopped reading its response");
+        }
+    }
+
+    private boolean offer(String chunk) {
+        try {
+            return chunks.offer(chunk, timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void writeChunks() {
+        try {
+            String chunk;
+            while ((chunk = chunks.take()) != END) {
+                ChipServer.writeLines(output, chunk);
+            }
+            output.flush();
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            // The server is shutting down.
+        } finally {
+            written.countDown();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package chip.server;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.regex.Pattern;
+
+import chip.Chip;
+import chip.ChipException;
+import chip.storage.Storage;
+import chip.storage.SyncPolicy;
+
+/**
+ * Keeps one Chip per tenant, loading each tenant's tasks on first use and holding at most a fixed
+ * number of tenants in memory.
+ *
+ * <p>Tenants are kept in least-recently-used order. Once there are more than the capacity, the
+ * least recently used tenants that are not in use are evicted: their changes are flushed to storage
+ * and they are loaded again on their next use. A caller pins a tenant with {@link #acquire(String)}
+ * for the duration of a command and unpins it with {@link #release(String)}, so a tenant is never
+ * evicted while a command runs against it. Pinned tenants may push the count above the capacity for
+ * a while; they are evicted once released.
+ *
+ * <p>Data files are spread over 256 shard directories named after the low byte of the hash of the
+ * tenant id, e.g. "3f/alice.txt", so no directory grows with the number of tenants.
+ *
+ * <p>Background compaction and syncing of every tenant's storage run on one scheduler owned by the
+ * registry, so the number of threads does not grow with the number of tenants either.
+ */
+public class TenantRegistry {
+
+    // Constants
+    private static final Pattern TENANT_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final String DATA_FILE_SUFFIX = ".txt";
+    private static final int SHARD_MASK = 0xFF;
+    private static final String SHARD_FORMAT = "%02x";
+    private static final int SYNC_MAX_PENDING_WRITES = 64;
+    private static final long SYNC_MAX_DELAY_MILLIS = 50;
+    private static final int STORAGE_THREADS = 2;
+    private static final String ERROR_INVALID_TENANT =
+            "A user name has 1 to 64 letters, digits, '-' or '_'.";
+
+    private final Path directory;
+    private final int capacity;
+    /** Tenants in access order, least recently used first */
+    private final LinkedHashMap<String, Tenant> tenants = new LinkedHashMap<>(16, 0.75f, true);
+    /** Evicted tenants whose changes are still being flushed */
+    private final HashMap<String, Tenant> closingTenants = new HashMap<>();
+    private final ScheduledExecutorService storageScheduler;
+
+    /**
+     * Constructs a TenantRegistry keeping its data files under the given directory.
+     *
+     * @param directory the root of the shard directories
+     * @param capacity the number of tenants to keep in memory
+     */
+    public TenantRegistry(Path directory, int capacity) {
+        assert directory != null : "Directory cannot be null";
+        assert capacity > 0 : "Capacity must be positive";
+        this.directory = directory;
+        this.capacity = capacity;
+        this.storageScheduler = Executors.newScheduledThreadPool(STORAGE_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "chip-storage");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the Chip of a tenant, loading it if it is not in memory, and pins it until the
+     * matching {@link #release(String)}.
+     *
+     * @param tenantId the tenant id
+     * @return the tenant's Chip
+     * @throws ChipException if the tenant id is not valid
+     */
+    public Chip acquire(String tenantId) throws ChipException {
+        if (!isValidTenantId(tenantId)) {
+            throw new ChipException(ERROR_INVALID_TENANT);
+        }
+        Tenant tenant;
+        List<Tenant> evicted;
+        synchronized (this) {
+            tenant = tenants.get(tenantId);
+            if (tenant == null) {
+                tenant = new Tenant(closingTenants.get(tenantId), storageScheduler);
+                tenants.put(tenantId, tenant);
+            }
+            tenant.pinCount++;
+            evicted = evictIfNeeded();
+        }
+        closeAll(evicted);
+        return tenant.load(dataFileOf(tenantId));
+    }
+
+    /**
+     * Returns whether a tenant id is safe to use as a file name: 1 to 64 letters, digits, '-' or '_'.
+     *
+     * @param tenantId the tenant id to check
+     * @return true if the id is valid
+     */
+    public static boolean isValidTenantId(String tenantId) {
+        return tenantId != null && TENANT_ID.matcher(tenantId).matches();
+    }
+
+    /**
+     * Unpins a tenant pinned by {@link #acquire(String)}, evicting tenants if the registry is over
+     * its capacity.
+     *
+     * @param tenantId the tenant id passed to acquire
+     */
+    public void release(String tenantId) {
+        List<Tenant> evicted;
+        synchronized (this) {
+            Tenant tenant = tenants.get(tenantId);
+            assert tenant != null && tenant.pinCount > 0 : "Tenant should be acquired before release";
+            tenant.pinCount--;
+            evicted = evictIfNeeded();
+        }
+        closeAll(evicted);
+    }
+
+    /**
+     * Returns the number of tenants held in memory.
+     *
+     * @return the number of loaded or loading tenants
+     */
+    public synchronized int size() {
+        return tenants.size();
+    }
+
+    /**
+     * Flushes every tenant to storage, empties the registry and stops the storage scheduler.
+     * The registry cannot be used afterwards.
+     */
+    public void close() {
+        List<Tenant> evicted;
+        synchronized (this) {
+            evicted = new ArrayList<>(tenants.size());
+            for (Map.Entry<String, Tenant> entry : tenants.entrySet()) {
+                closingTenants.put(entry.getKey(), entry.getValue());
+                evicted.add(entry.getValue());
+            }
+            tenants.clear();
+        }
+        closeAll(evicted);
+        storageScheduler.shutdown();
+    }
+
+    /**
+     * Returns the data file of a tenant inside its shard directory.
+     *
+     * @param tenantId the tenant id
+     * @return the path of the tenant's data file
+     */
+    Path dataFileOf(String tenantId) {
+        String shard = String.format(SHARD_FORMAT, tenantId.hashCode() & SHARD_MASK);
+        return directory.resolve(shard).resolve(tenantId + DATA_FILE_SUFFIX);
+    }
+
+    /**
+     * Removes the least recently used unpinned tenants beyond the capacity. Must be called while
+     * holding the registry lock; the returned tenants are closed afterwards without it.
+     */
+    private List<Tenant> evictIfNeeded() {
+        List<Tenant> evicted = new ArrayList<>();
+        // Iterate the entries, since a get on an access-ordered map would reorder it mid-iteration
+        Iterator<Map.Entry<String, Tenant>> eldest = tenants.entrySet().iterator();
+        while (tenants.size() > capacity && eldest.hasNext()) {
+            Map.Entry<String, Tenant> entry = eldest.next();
+            if (entry.getValue().pinCount > 0) {
+                continue;
+            }
+            closingTenants.put(entry.getKey(), entry.getValue());
+            evicted.add(entry.getValue());
+            eldest.remove();
+        }
+        return evicted;
+    }
+
+    private void closeAll(List<Tenant> evicted) {
+        for (Tenant tenant : evicted) {
+            tenant.close();
+            synchronized (this) {
+                closingTenants.values().remove(tenant);
+            }
+        }
+    }
+
+    /**
+     * A tenant's Chip, loaded on first use. A tenant that was evicted and used again waits for its
+     * previous instance to finish flushing before loading, so it never reads stale data.
+     */
+    private static class Tenant {
+        private final ScheduledExecutorService storageScheduler;
+        private Tenant predecessor;
+        private Chip chip;
+        private boolean isClosed;
+        /** Guarded by the registry lock */
+        private int pinCount;
+
+        Tenant(Tenant predecessor, ScheduledExecutorService storageScheduler) {
+            this.predecessor = predecessor;
+            this.storageScheduler = storageScheduler;
+        }
+
+        synchronized Chip load(Path dataFile) {
+            if (chip == null) {
+                if (predecessor != null) {
+                    predecessor.awaitClosed();
+                    predecessor = null;
+                }
+                SyncPolicy syncPolicy = new SyncPolicy(SYNC_MAX_PENDING_WRITES, SYNC_MAX_DELAY_MILLIS);
+                chip = new Chip(new Storage(dataFile.toString(), true, syncPolicy, false, storageScheduler));
+            }
+            return chip;
+        }
+
+        synchronized void close() {
+            if (chip != null) {
+                chip.close();
+            }
+            isClosed = true;
+            notifyAll();
+        }
+
+        synchronized void awaitClosed() {
+            boolean isInterrupted = false;
+            while (!isClosed) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    isInterrupted = true;
+                }
+            }
+            if (isInterrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package chip.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import chip.ChipException;
+import chip.task.Deadline;
+import chip.task.Event;
+import chip.task.Task;
+import chip.task.Todo;
+
+/**
+ * Encodes and decodes snapshots in the compact binary format.
+ *
+ * <p>Layout (version 2): the magic bytes "CHIP", a version byte, the snapshot generation as a long,
+ * the next task id and the task count as ints, followed by one record per task. A record starts with a tag byte
+ * holding the task type in the low bits and the done flag in the high bit, then the task id as a
+ * varint, then the description as a varint byte length and UTF-8 bytes, then the dates of deadlines
+ * and events as epoch-minute longs. Version 1 files have no next id and records without ids, and
+ * are still read.
+ */
+public class BinaryTaskCodec {
+
+    // Constants
+    private static final byte[] MAGIC = {'C', 'H', 'I', 'P'};
+    private static final byte VERSION = 2;
+    private static final byte VERSION_WITHOUT_IDS = 1;
+    private static final int TYPE_TODO = 1;
+    private static final int TYPE_DEADLINE = 2;
+    private static final int TYPE_EVENT = 3;
+    private static final int DONE_BIT = 0x80;
+    private static final int TYPE_MASK = 0x7F;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String ERROR_LENGTH = "The binary data file has a malformed description length.";
+
+    private BinaryTaskCodec() {
+    }
+
+    /**
+     * Returns whether the file starts with the binary snapshot magic bytes.
+     *
+     * @param path the file to inspect
+     * @return true if the file is a binary snapshot
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isBinary(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return false;
+        }
+        try (InputStream input = Files.newInputStream(path)) {
+            byte[] header = input.readNBytes(MAGIC.length);
+            return Arrays.equals(header, MAGIC);
+        }
+    }
+
+    /**
+     * Writes a binary snapshot of the tasks. The stream is flushed but not closed.
+     *
+     * @param output the stream to write to
+     * @param generation the snapshot generation
+     * @param nextId the id after the highest one ever stored
+     * @param tasks the tasks to write
+     * @throws IOException if writing fails
+     */
+    public static void write(OutputStream output, long generation, int nextId, List<Task> tasks)
+            throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output, BUFFER_SIZE));
+        data.write(MAGIC);
+        data.writeByte(VERSION);
+        data.writeLong(generation);
+        data.writeInt(nextId);
+        data.writeInt(tasks.size());
+        for (Task task : tasks) {
+            writeTask(data, task);
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads a binary snapshot, passing each task to the consumer in order.
+     *
+     * @param path the snapshot file
+     * @param consumer the callback receiving each task
+     * @return the snapshot generation
+     * @throws ChipException if the file is not a supported binary snapshot, is truncated or is corrupted
+     */
+    public static long read(Path path, Consumer<Task> consumer) throws ChipException {
+        try (DataInputStream data = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE))) {
+            byte version = readVersion(data);
+            long generation = data.readLong();
+            if (version != VERSION_WITHOUT_IDS) {
+                data.readInt();
+            }
+            int count = data.readInt();
+            for (int i = 0; i < count; i++) {
+                consumer.accept(readTask(data, version != VERSION_WITHOUT_IDS));
+            }
+            return generation;
+        } catch (EOFException e) {
+            throw new ChipException("The binary data file is truncated.");
+        } catch (IOException e) {
+            throw new ChipException("Error loading tasks from file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads only the generation of a binary snapshot.
+     *
+     * @param path the snapshot file
+     * @return the snapshot generation
+     * @throws ChipException if the file is not a supported binary snapshot
+     */
+    public static long readGeneration(Path path) throws ChipException {
+        try (DataInputStream data = new DataInputStream(Files.newInputStream(path))) {
+            readVersion(data);
+            return data.readLong();
+        } catch (IOException e) {
+            throw new ChipException("Error loading tasks from file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads only the next task id of a binary snapshot.
+     *
+     * @param path the snapshot file
+     * @return the id after the highest one ever stored, or 1 for a version 1 snapshot
+     * @throws ChipException if the file is not a supported binary snapshot
+     */
+    public static int readNextId(Path path) throws ChipException {
+        try (DataInputStream data = new DataInputStream(Files.newInputStream(path))) {
+            byte version = readVersion(data);
+            data.readLong();
+            return version == VERSION_WITHOUT_IDS ? 1 : data.readInt();
+        } catch (IOException e) {
+            throw new ChipException("Error loading tasks from file: " + e.getMessage());
+        }
+    }
+
+    private static byte readVersion(DataInputStream data) throws IOException, ChipException {
+        byte[] magic = new byte[MAGIC.length];
+        data.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new ChipException("Not a binary data file.");
+        }
+        byte version = data.readByte();
+        if (version != VERSION && version != VERSION_WITHOUT_IDS) {
+            throw new ChipException("Unsupported binary data file version: " + version);
+        }
+        return version;
+    }
+
+    private static void writeTask(DataOutputStream data, Task task) throws IOException {
+        int type;
+        if (task instanceof Deadline) {
+            type = TYPE_DEADLINE;
+        } else if (task instanceof Event) {
+            type = TYPE_EVENT;
+        } else {
+            type = TYPE_TODO;
+        }
+        data.writeByte(type | (task.isDone() ? DONE_BIT : 0));
+        writeVarInt(data, task.getId());
+
+        byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        writeVarInt(data, description.length);
+        data.write(description);
+
+        if (task instanceof Deadline) {
+            data.writeLong(((Deadline) task).getByMinute());
+        } else if (task instanceof Event) {
+            Event event = (Event) task;
+            data.writeLong(event.getFromMinute());
+            data.writeLong(event.getToMinute());
+        }
+    }
+
+    private static Task readTask(DataInputStream data, boolean hasId) throws IOException, ChipException {
+        int tag = data.readUnsignedByte();
+        int id = hasId ? readVarInt(data) : 0;
+        int length = readVarInt(data);
+        // For a file, available() is the number of bytes left in it
+        if (length < 0 || length > data.available()) {
+            throw new ChipException(ERROR_LENGTH);
+        }
+        byte[] bytes = new byte[length];
+        data.readFully(bytes);
+        String description = new String(bytes, StandardCharsets.UTF_8);
+
+        Task task;
+        switch (tag & TYPE_MASK) {
+        case TYPE_TODO:
+            task = new Todo(description);
+            break;
+        case TYPE_DEADLINE:
+            task = new Deadline(description, data.readLong());
+            break;
+        case TYPE_EVENT:
+            long fromMinute = data.readLong();
+            task = new Event(description, fromMinute, data.readLong());
+            break;
+        default:
+            throw new ChipException("Unknown task type in binary data file: " + (tag & TYPE_MASK));
+        }
+
+        if ((tag & DONE_BIT) != 0) {
+            task.markAsDone();
+        }
+        if (id > 0) {
+            task.setId(id);
+        }
+        return task;
+    }
+
+    private static void writeVarInt(DataOutputStream data, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            data.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream data) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = data.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed length in binary data file.");
+    }
+}
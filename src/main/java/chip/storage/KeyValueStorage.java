@@ -0,0 +1,479 @@
+package chip.storage;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import chip.ChipException;
+import chip.task.Task;
+
+/**
+ * Stores tasks in an append-only log keyed by task id, in the style of Bitcask.
+ *
+ * <p>Every change appends one small record: adding or marking a task writes the task under its id,
+ * deleting a task writes a tombstone for its id. A change therefore costs one append no matter how
+ * many tasks are stored. Loading reads the log from the start and keeps the last record of every id.
+ *
+ * <p>Each record carries a sequence number giving the position of the task in the list; marking a
+ * task keeps its sequence number, so the list comes back in order. Reordering the list rewrites the
+ * whole log, as does compaction once more than half of the records are superseded. A rewritten log
+ * keeps a tombstone for the highest id ever stored if that task is gone, so its id is not reused.
+ *
+ * <p>Record layout: a CRC-32 of the rest of the record, a type byte, the task id as an int, the
+ * sequence number as a long, then the value length as an int and the task as a UTF-8 text line.
+ * A record cut short by a crash at the end of the log is dropped on load if the log ends within
+ * its header or its checksum fails. A complete header whose length runs past the end of the log
+ * is reported as corrupted instead, as a damaged length would otherwise drop every later record.
+ */
+public class KeyValueStorage implements TaskRepository {
+
+    // Constants
+    private static final byte TYPE_PUT = 1;
+    private static final byte TYPE_DELETE = 2;
+    private static final int HEADER_LENGTH = 1 + Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int COMPACTION_THRESHOLD = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String ERROR_SAVING = "An error occurred while saving tasks: ";
+    private static final String ERROR_CORRUPTED = "Error loading tasks from file. The file might be corrupted.";
+
+    private final String filePath;
+    private final SyncPolicy syncPolicy;
+    /** The key directory: the sequence number of the live record of every stored task id */
+    private final HashMap<Integer, Long> sequenceById = new HashMap<>();
+    private long nextSequence;
+    private int nextId = 1;
+    private int recordCount;
+    private FileOutputStream logStream;
+    private int unsyncedRecordCount;
+    private long lastSyncMillis;
+    private boolean isInBatch;
+    private boolean hasBatchChanges;
+
+    /**
+     * Constructs a KeyValueStorage that forces every append to disk.
+     *
+     * @param filePath the path to the log file
+     */
+    public KeyValueStorage(String filePath) {
+        this(filePath, SyncPolicy.ALWAYS);
+    }
+
+    /**
+     * Constructs a KeyValueStorage that forces appends to disk in groups. There is no background
+     * flusher, so the delay limit is checked on the next append and pending appends are forced to
+     * disk on {@link #close()}.
+     *
+     * @param filePath the path to the log file
+     * @param syncPolicy how often appends are forced to disk
+     */
+    public KeyValueStorage(String filePath, SyncPolicy syncPolicy) {
+        assert filePath != null : "File path cannot be null";
+        assert syncPolicy != null : "Sync policy cannot be null";
+        this.filePath = filePath;
+        this.syncPolicy = syncPolicy;
+    }
+
+    /**
+     * Loads the tasks by reading the whole log and keeping the last record of every id.
+     * A torn record at the end of the log is cut off.
+     *
+     * @return the live tasks in list order, empty if the log does not exist
+     * @throws ChipException if a record in the log is corrupted or cannot be read
+     */
+    @Override
+    public synchronized ArrayList<Task> load() throws ChipException {
+        closeLog();
+        sequenceById.clear();
+        nextSequence = 0;
+        nextId = 1;
+        recordCount = 0;
+        Path path = Path.of(filePath);
+        if (!Files.exists(path)) {
+            return new ArrayList<>();
+        }
+
+        HashMap<Integer, Task> taskById = new HashMap<>();
+        long validLength = 0;
+        long fileLength;
+        try (DataInputStream data = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE))) {
+            fileLength = Files.size(path);
+            while (validLength < fileLength) {
+                long recordEnd = readRecord(data, fileLength - validLength, taskById);
+                if (recordEnd < 0) {
+                    break;
+                }
+                validLength += recordEnd;
+                recordCount++;
+            }
+        } catch (IOException | ChipException | RuntimeException e) {
+            throw new ChipException(ERROR_CORRUPTED);
+        }
+        if (validLength < fileLength) {
+            truncate(path, validLength);
+        }
+
+        ArrayList<Task> tasks = new ArrayList<>(taskById.values());
+        tasks.sort((a, b) -> Long.compare(sequenceById.get(a.getId()), sequenceById.get(b.getId())));
+        return tasks;
+    }
+
+    /**
+     * Reads one record and applies it to the tasks read so far.
+     *
+     * @param remaining the number of bytes left in the log
+     * @return the length of the record, or -1 if the record is torn and ends the log
+     * @throws ChipException if the record is corrupted before the end of the log or its length
+     *         runs past the end of the log
+     */
+    private long readRecord(DataInputStream data, long remaining, HashMap<Integer, Task> taskById)
+            throws IOException, ChipException {
+        if (remaining < Integer.BYTES + HEADER_LENGTH) {
+            return -1;
+        }
+        int checksum = data.readInt();
+        byte type = data.readByte();
+        int id = data.readInt();
+        long sequence = data.readLong();
+        int length = data.readInt();
+        long recordLength = Integer.BYTES + HEADER_LENGTH + (long) length;
+        if (length < 0 || recordLength > remaining) {
+            throw new ChipException(ERROR_CORRUPTED);
+        }
+        byte[] value = new byte[length];
+        try {
+            data.readFully(value);
+        } catch (EOFException e) {
+            return -1;
+        }
+
+        if (checksum != checksumOf(type, id, sequence, length, value)) {
+            // Only the last record can have been torn by a crash
+            if (recordLength == remaining) {
+                return -1;
+            }
+            throw new ChipException(ERROR_CORRUPTED);
+        }
+
+        nextId = Math.max(nextId, id + 1);
+        switch (type) {
+        case TYPE_PUT:
+            Task task = TaskLineParser.parse(new String(value, StandardCharsets.UTF_8));
+            if (task == null || task.getId() != id) {
+                throw new ChipException(ERROR_CORRUPTED);
+            }
+            taskById.put(id, task);
+            sequenceById.put(id, sequence);
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            break;
+        case TYPE_DELETE:
+            taskById.remove(id);
+            sequenceById.remove(id);
+            break;
+        default:
+            throw new ChipException(ERROR_CORRUPTED);
+        }
+        return recordLength;
+    }
+
+    @Override
+    public synchronized int getNextId() {
+        return nextId;
+    }
+
+    /**
+     * Rewrites the log with one record per task, numbered in list order. The new log is written
+     * to a temporary file which is forced to disk and then atomically renamed over the old one.
+     *
+     * @param tasks the full list of tasks
+     * @throws ChipException if an I/O error occurs during saving
+     */
+    @Override
+    public void save(List<Task> tasks) throws ChipException {
+        if (deferToBatch()) {
+            return;
+        }
+        writeLog(tasks);
+    }
+
+    private synchronized void writeLog(List<Task> tasks) throws ChipException {
+        closeLog();
+        HashMap<Integer, Long> newSequenceById = new HashMap<>();
+        boolean hasTombstone;
+        File file = new File(filePath);
+        Path temp = Path.of(filePath + TEMP_SUFFIX);
+        try {
+            createParentDirectory(file);
+            try (FileOutputStream output = new FileOutputStream(temp.toFile())) {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(BUFFER_SIZE);
+                DataOutputStream data = new DataOutputStream(buffer);
+                long sequence = 0;
+                for (Task task : tasks) {
+                    writePut(data, task, sequence);
+                    newSequenceById.put(task.getId(), sequence);
+                    nextId = Math.max(nextId, task.getId() + 1);
+                    sequence++;
+                    if (buffer.size() >= BUFFER_SIZE) {
+                        buffer.writeTo(output);
+                        buffer.reset();
+                    }
+                }
+                hasTombstone = nextId > 1 && !newSequenceById.containsKey(nextId - 1);
+                if (hasTombstone) {
+                    writeRecord(data, TYPE_DELETE, nextId - 1, 0, new byte[0]);
+                }
+                buffer.writeTo(output);
+                output.getChannel().force(true);
+            }
+            try {
+                Files.move(temp, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new ChipException(ERROR_SAVING + e.getMessage());
+        }
+
+        sequenceById.clear();
+        sequenceById.putAll(newSequenceById);
+        nextSequence = tasks.size();
+        recordCount = tasks.size() + (hasTombstone ? 1 : 0);
+    }
+
+    @Override
+    public void recordAdd(List<Task> tasks, Task task) throws ChipException {
+        if (deferToBatch()) {
+            return;
+        }
+        append(tasks, List.of(task), TYPE_PUT);
+    }
+
+    @Override
+    public void recordDelete(List<Task> tasks, int index, Task task) throws ChipException {
+        if (deferToBatch()) {
+            return;
+        }
+        append(tasks, List.of(task), TYPE_DELETE);
+    }
+
+    @Override
+    public void recordDelete(List<Task> tasks, int[] indexes, List<Task> removedTasks) throws ChipException {
+        assert indexes.length == removedTasks.size() : "Every index should have its removed task";
+        if (deferToBatch()) {
+            return;
+        }
+        append(tasks, removedTasks, TYPE_DELETE);
+    }
+
+    @Override
+    public void recordMark(List<Task> tasks, int index, boolean isDone) throws ChipException {
+        if (deferToBatch()) {
+            return;
+        }
+        append(tasks, List.of(tasks.get(index)), TYPE_PUT);
+    }
+
+    @Override
+    public void recordMark(List<Task> tasks, int[] indexes, boolean isDone) throws ChipException {
+        if (deferToBatch()) {
+            return;
+        }
+        List<Task> changed = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            changed.add(tasks.get(index));
+        }
+        append(tasks, changed, TYPE_PUT);
+    }
+
+    /**
+     * Appends one record per task in a single write and forces it to disk if the sync policy says
+     * so. Compacts the log instead once superseded records outnumber the live ones.
+     */
+    private synchronized void append(List<Task> tasks, List<Task> changed, byte type) throws ChipException {
+        int superseded = recordCount - sequenceById.size();
+        if (recordCount >= COMPACTION_THRESHOLD && superseded > recordCount / 2) {
+            writeLog(tasks);
+            return;
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(buffer);
+        try {
+            for (Task task : changed) {
+                assert task.getId() > 0 : "Stored tasks should have an id";
+                nextId = Math.max(nextId, task.getId() + 1);
+                if (type == TYPE_DELETE) {
+                    writeRecord(data, TYPE_DELETE, task.getId(), 0, new byte[0]);
+                    sequenceById.remove(task.getId());
+                    continue;
+                }
+                Long sequence = sequenceById.get(task.getId());
+                if (sequence == null) {
+                    sequence = nextSequence++;
+                    sequenceById.put(task.getId(), sequence);
+                }
+                writePut(data, task, sequence);
+            }
+            openLog();
+            buffer.writeTo(logStream);
+        } catch (IOException e) {
+            throw new ChipException(ERROR_SAVING + e.getMessage());
+        }
+        recordCount += changed.size();
+        unsyncedRecordCount += changed.size();
+        if (syncPolicy.isSyncDue(unsyncedRecordCount, System.currentTimeMillis() - lastSyncMillis)) {
+            sync();
+        }
+    }
+
+    /**
+     * Forces any appends that are still pending under the sync policy to disk.
+     *
+     * @throws ChipException if the log cannot be forced to disk
+     */
+    public synchronized void sync() throws ChipException {
+        if (logStream == null || unsyncedRecordCount == 0) {
+            return;
+        }
+        try {
+            logStream.getChannel().force(false);
+        } catch (IOException e) {
+            throw new ChipException(ERROR_SAVING + e.getMessage());
+        }
+        unsyncedRecordCount = 0;
+        lastSyncMillis = System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized void beginBatch() {
+        assert !isInBatch : "Batches cannot be nested";
+        isInBatch = true;
+        hasBatchChanges = false;
+    }
+
+    @Override
+    public void endBatch(List<Task> tasks) throws ChipException {
+        boolean hasChanges;
+        synchronized (this) {
+            assert isInBatch : "No batch to end";
+            hasChanges = hasBatchChanges;
+            isInBatch = false;
+        }
+        if (hasChanges) {
+            save(tasks);
+        }
+    }
+
+    @Override
+    public synchronized void abortBatch() {
+        assert isInBatch : "No batch to abort";
+        isInBatch = false;
+    }
+
+    /**
+     * Forces pending appends to disk and closes the log.
+     *
+     * @throws ChipException if the pending appends cannot be forced to disk
+     */
+    @Override
+    public synchronized void close() throws ChipException {
+        sync();
+        closeLog();
+    }
+
+    private synchronized boolean deferToBatch() {
+        if (isInBatch) {
+            hasBatchChanges = true;
+        }
+        return isInBatch;
+    }
+
+    private void openLog() throws IOException {
+        if (logStream != null) {
+            return;
+        }
+        File file = new File(filePath);
+        createParentDirectory(file);
+        logStream = new FileOutputStream(file, true);
+        lastSyncMillis = System.currentTimeMillis();
+    }
+
+    private void closeLog() {
+        if (logStream == null) {
+            return;
+        }
+        try {
+            if (unsyncedRecordCount > 0) {
+                logStream.getChannel().force(false);
+            }
+            logStream.close();
+        } catch (IOException e) {
+            // Everything was written already; the file is reopened on the next append.
+        }
+        logStream = null;
+        unsyncedRecordCount = 0;
+    }
+
+    private static void writePut(DataOutputStream data, Task task, long sequence) throws IOException {
+        byte[] value = TaskLineParser.format(task).getBytes(StandardCharsets.UTF_8);
+        writeRecord(data, TYPE_PUT, task.getId(), sequence, value);
+    }
+
+    private static void writeRecord(DataOutputStream data, byte type, int id, long sequence, byte[] value)
+            throws IOException {
+        data.writeInt(checksumOf(type, id, sequence, value.length, value));
+        data.writeByte(type);
+        data.writeInt(id);
+        data.writeLong(sequence);
+        data.writeInt(value.length);
+        data.write(value);
+    }
+
+    private static int checksumOf(byte type, int id, long sequence, int length, byte[] value) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            crc.update(id >>> shift);
+        }
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (sequence >>> shift));
+        }
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            crc.update(length >>> shift);
+        }
+        crc.update(value);
+        return (int) crc.getValue();
+    }
+
+    private static void truncate(Path path, long length) throws ChipException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+        } catch (IOException e) {
+            throw new ChipException(ERROR_CORRUPTED);
+        }
+    }
+
+    private static void createParentDirectory(File file) {
+        File directory = file.getParentFile();
+        if (directory != null && !directory.exists()) {
+            directory.mkdirs();
+        }
+    }
+}
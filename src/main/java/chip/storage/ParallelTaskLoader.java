@@ -0,0 +1,221 @@
+package chip.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import chip.ChipException;
+import chip.task.Task;
+
+/**
+ * Loads large text data files by memory-mapping them and parsing chunks in parallel.
+ * The file is split into chunks that end on line boundaries, each chunk is parsed on the
+ * common fork-join pool, and the per-chunk results are concatenated in file order.
+ */
+class ParallelTaskLoader {
+
+    // Constants
+    static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final int SCAN_BUFFER_SIZE = 4096;
+    private static final int LINE_BUFFER_SIZE = 256;
+    private static final byte NEWLINE = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final String SNAPSHOT_HEADER_PREFIX = "#";
+
+    private ParallelTaskLoader() {
+    }
+
+    /**
+     * Loads all tasks from the file, preserving their order.
+     *
+     * @param path the text data file to load
+     * @return the tasks in file order
+     * @throws ChipException if the file cannot be read or a line is malformed
+     */
+    static ArrayList<Task> load(Path path) throws ChipException {
+        return load(path, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Loads all tasks from the file in chunks of roughly the given size, preserving their order.
+     *
+     * @param path the text data file to load
+     * @param chunkSize the number of bytes after which a chunk ends at the next line end
+     * @return the tasks in file order
+     * @throws ChipException if the file cannot be read or a line is malformed
+     */
+    static ArrayList<Task> load(Path path, int chunkSize) throws ChipException {
+        assert chunkSize > 0 : "Chunk size must be positive";
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] bounds = findChunkBounds(channel, channel.size(), chunkSize);
+            int chunkCount = bounds.length - 1;
+            List<List<Task>> results = new ArrayList<>(Collections.nCopies(chunkCount, null));
+
+            ForkJoinPool.commonPool().invoke(new ChunkParser(channel, bounds, results, 0, chunkCount));
+
+            int total = 0;
+            for (List<Task> chunk : results) {
+                total += chunk.size();
+            }
+            ArrayList<Task> tasks = new ArrayList<>(total);
+            for (List<Task> chunk : results) {
+                tasks.addAll(chunk);
+            }
+            return tasks;
+        } catch (IOException e) {
+            throw new ChipException("Error loading tasks from file: " + e.getMessage());
+        } catch (ChunkParseException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Splits the file into chunks of roughly the given size. Every boundary but the
+     * last is placed just after a newline, so no line straddles two chunks.
+     *
+     * @return the chunk start offsets followed by the file size
+     */
+    private static long[] findChunkBounds(FileChannel channel, long size, int chunkSize) throws IOException {
+        ArrayList<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer scan = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = chunkSize;
+        while (position < size) {
+            long lineEnd = findNextLineStart(channel, scan, position, size);
+            if (lineEnd >= size) {
+                break;
+            }
+            bounds.add(lineEnd);
+            position = lineEnd + chunkSize;
+        }
+        bounds.add(size);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the offset just after the first newline at or after the given position.
+     */
+    private static long findNextLineStart(FileChannel channel, ByteBuffer scan, long position, long size)
+            throws IOException {
+        while (position < size) {
+            scan.clear();
+            int read = channel.read(scan, position);
+            if (read <= 0) {
+                return size;
+            }
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == NEWLINE) {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Parses a range of chunks, splitting the range in half until a single chunk remains.
+     */
+    private static class ChunkParser extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long[] bounds;
+        private final List<List<Task>> results;
+        private final int from;
+        private final int to;
+
+        ChunkParser(FileChannel channel, long[] bounds, List<List<Task>> results, int from, int to) {
+            this.channel = channel;
+            this.bounds = bounds;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ChunkParser(channel, bounds, results, from, middle),
+                        new ChunkParser(channel, bounds, results, middle, to));
+                return;
+            }
+            try {
+                results.set(from, parseChunk(bounds[from], bounds[from + 1]));
+            } catch (IOException e) {
+                throw new ChunkParseException(new ChipException("Error loading tasks from file: " + e.getMessage()));
+            } catch (ChipException e) {
+                throw new ChunkParseException(e);
+            }
+        }
+
+        private List<Task> parseChunk(long start, long end) throws IOException, ChipException {
+            ArrayList<Task> tasks = new ArrayList<>();
+            if (end <= start) {
+                return tasks;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            int length = buffer.limit();
+            // Only one line at a time is copied out of the mapping, to be decoded
+            byte[] lineBytes = new byte[LINE_BUFFER_SIZE];
+
+            int lineStart = 0;
+            for (int i = 0; i <= length; i++) {
+                if (i < length && buffer.get(i) != NEWLINE) {
+                    continue;
+                }
+                int lineEnd = i;
+                if (lineEnd > lineStart && buffer.get(lineEnd - 1) == CARRIAGE_RETURN) {
+                    lineEnd--;
+                }
+                if (lineEnd > lineStart) {
+                    int lineLength = lineEnd - lineStart;
+                    if (lineLength > lineBytes.length) {
+                        lineBytes = new byte[Math.max(lineLength, lineBytes.length * 2)];
+                    }
+                    buffer.get(lineStart, lineBytes, 0, lineLength);
+                    String line = new String(lineBytes, 0, lineLength, StandardCharsets.UTF_8);
+                    if (!line.startsWith(SNAPSHOT_HEADER_PREFIX)) {
+                        Task task = TaskLineParser.parse(line);
+                        if (task != null) {
+                            tasks.add(task);
+                        }
+                    }
+                }
+                lineStart = i + 1;
+            }
+            return tasks;
+        }
+    }
+
+    /**
+     * Carries a checked parse failure out of a fork-join task.
+     */
+    private static class ChunkParseException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ChunkParseException(ChipException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized ChipException getCause() {
+            return (ChipException) super.getCause();
+        }
+    }
+}
@@ -1,103 +1,1212 @@
 package chip.storage;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import chip.ChipException;
-import chip.task.Deadline;
-import chip.task.Event;
 import chip.task.Task;
-import chip.task.Todo;
 
 /**
- * Handles loading and saving of tasks to and from a file.
+ * Handles loading and saving of tasks to and from a file. This is the flat-file {@link TaskRepository}.
  * Manages file I/O operations and data persistence for the task management system.
+ *
+ * <p>Snapshots are written to a temporary file, forced to disk and atomically renamed over the
+ * data file, so a crash never leaves a half-written snapshot behind.
+ *
+ * <p>In journal mode, individual mutations are appended to a journal file next to the
+ * snapshot instead of rewriting the whole snapshot. Loading replays the journal on top of
+ * the snapshot, and a background compactor periodically folds the journal back into a
+ * fresh snapshot. Both files carry a generation number, so a journal that was already folded
+ * into the snapshot is never replayed twice. Journal appends are forced to disk in groups
+ * according to the {@link SyncPolicy}. A command touching several tasks appends a single
+ * record listing all their positions, ending with the position count so a torn record is detected.
+ *
+ * <p>Snapshots also record the next task id, the id after the highest one ever stored, so the
+ * id of a deleted task is not given to a new task after a restart.
+ *
+ * <p>Snapshots are written as text lines or, after {@link #convertTo(StorageFormat)}, in the compact
+ * binary format of {@link BinaryTaskCodec}. The format is detected on load and kept on save.
+ *
+ * <p>In write-behind mode, mutations only queue their change and return immediately. A dedicated
+ * writer thread drains everything queued since its last write in a single write, so a burst of
+ * commands costs one I/O. {@link #flush()}, {@link #close()} and a JVM shutdown hook wait for the
+ * queue to drain, so no acknowledged change is lost on a normal exit.
  */
-public class Storage {
+public class Storage implements TaskRepository {
+
+    // Constants
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String FIELD_SEPARATOR = " | ";
+    private static final int SEPARATOR_LENGTH = FIELD_SEPARATOR.length();
+    private static final String SNAPSHOT_HEADER = "# generation ";
+    private static final String NEXT_ID_FIELD = " next-id ";
+    private static final String RECORD_GENERATION = "GENERATION";
+    private static final String RECORD_ADD = "ADD";
+    private static final String RECORD_DELETE = "DELETE";
+    private static final String RECORD_MARK = "MARK";
+    private static final String RECORD_UNMARK = "UNMARK";
+    private static final String RECORD_MANY_SUFFIX = "_MANY";
+    private static final String INDEX_SEPARATOR = ",";
+    private static final int COMPACTION_THRESHOLD = 1000;
+    private static final long COMPACTION_INTERVAL_SECONDS = 30;
+    private static final long WRITE_RETRY_MILLIS = 1000;
+    private static final long PARALLEL_LOAD_THRESHOLD_BYTES = 8 * 1024 * 1024;
+    private static final String ERROR_SAVING = "An error occurred while saving tasks: ";
+    private static final String ERROR_CORRUPTED = "Error loading tasks from file. The file might be corrupted.";
+    private static final String ERROR_JOURNAL_CORRUPTED = "Error replaying the journal. The file might be corrupted.";
+
     private final String filePath;
+    private final String journalPath;
+    private final boolean isJournaled;
+    private final SyncPolicy syncPolicy;
+    private long generation;
+    private boolean isGenerationKnown;
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private StorageFormat format = StorageFormat.TEXT;
+    private int journalRecordCount;
+    private FileOutputStream journalStream;
+    private int unsyncedRecordCount;
+    private long lastSyncMillis;
+    private final ScheduledExecutorService sharedScheduler;
+    private ScheduledExecutorService background;
+    private final List<ScheduledFuture<?>> backgroundTasks = new ArrayList<>();
+    private boolean isInBatch;
+    private boolean hasBatchChanges;
+
+    // Write-behind state, guarded by queueLock
+    private final boolean isWriteBehind;
+    private final Object queueLock = new Object();
+    private ArrayList<Task> pendingSnapshot;
+    private ArrayList<String> pendingRecords = new ArrayList<>();
+    private boolean isWriterBusy;
+    private boolean isWriterStopping;
+    private ChipException writeFailure;
+    private Thread writer;
+    private Thread shutdownHook;
 
     /**
      * Constructs a Storage instance with the specified file path.
+     * Every mutation rewrites the whole file.
      *
      * @param filePath the path to the file for storing task data
      */
     public Storage(String filePath) {
+        this(filePath, false);
+    }
+
+    /**
+     * Constructs a Storage instance with the specified file path and persistence mode.
+     * Journal appends are forced to disk one at a time.
+     *
+     * @param filePath the path to the file for storing task data
+     * @param isJournaled whether mutations are appended to a journal instead of rewriting the file
+     */
+    public Storage(String filePath, boolean isJournaled) {
+        this(filePath, isJournaled, SyncPolicy.ALWAYS);
+    }
+
+    /**
+     * Constructs a Storage instance with the specified file path, persistence mode and sync policy.
+     *
+     * @param filePath the path to the file for storing task data
+     * @param isJournaled whether mutations are appended to a journal instead of rewriting the file
+     * @param syncPolicy how often journal appends are forced to disk
+     */
+    public Storage(String filePath, boolean isJournaled, SyncPolicy syncPolicy) {
+        this(filePath, isJournaled, syncPolicy, false);
+    }
+
+    /**
+     * Constructs a Storage instance that optionally persists changes from a background writer thread.
+     *
+     * @param filePath the path to the file for storing task data
+     * @param isJournaled whether mutations are appended to a journal instead of rewriting the file
+     * @param syncPolicy how often journal appends are forced to disk
+     * @param isWriteBehind whether mutations are queued and written by a background thread
+     */
+    public Storage(String filePath, boolean isJournaled, SyncPolicy syncPolicy, boolean isWriteBehind) {
+        this(filePath, isJournaled, syncPolicy, isWriteBehind, null);
+    }
+
+    /**
+     * Constructs a Storage instance that runs its background compaction and syncing on the given
+     * scheduler instead of starting a thread of its own, so many instances can share one thread.
+     * The scheduler is not shut down by {@link #close()}.
+     *
+     * @param filePath the path to the file for storing task data
+     * @param isJournaled whether mutations are appended to a journal instead of rewriting the file
+     * @param syncPolicy how often journal appends are forced to disk
+     * @param isWriteBehind whether mutations are queued and written by a background thread
+     * @param scheduler the scheduler for background work, or null to start a dedicated thread
+     */
+    public Storage(String filePath, boolean isJournaled, SyncPolicy syncPolicy, boolean isWriteBehind,
+            ScheduledExecutorService scheduler) {
+        assert syncPolicy != null : "Sync policy cannot be null";
         this.filePath = filePath;
+        this.journalPath = filePath + JOURNAL_SUFFIX;
+        this.isJournaled = isJournaled;
+        this.syncPolicy = syncPolicy;
+        this.isWriteBehind = isWriteBehind;
+        this.sharedScheduler = scheduler;
     }
 
     /**
      * Loads tasks from the storage file.
-     * Parses the file format and creates appropriate Task objects.
+     * Parses the file format and creates appropriate Task objects, then replays the journal if any.
+     * On multi-core machines, files larger than {@link #PARALLEL_LOAD_THRESHOLD_BYTES} are
+     * memory-mapped and parsed in parallel chunks.
      *
      * @return ArrayList of tasks loaded from the file, empty list if file doesn't exist
      * @throws ChipException if file is corrupted or cannot be read
      */
-    public ArrayList<Task> load() throws ChipException {
-        ArrayList<Task> tasks = new ArrayList<>();
+    @Override
+    public synchronized ArrayList<Task> load() throws ChipException {
+        ArrayList<Task> tasks;
         File file = new File(filePath);
-        if (!file.exists()) {
-            return tasks;
-        }
-
-        try (Scanner scanner = new Scanner(file)) {
-            while (scanner.hasNext()) {
-                String line = scanner.nextLine();
-                String[] parts = line.split(" \\| ");
-                Task task = null;
-
-                switch (parts[0]) {
-                case "T":
-                    task = new Todo(parts[2]);
-                    break;
-                case "D":
-                    task = new Deadline(parts[2], parts[3]);
-                    break;
-                case "E":
-                    task = new Event(parts[2], parts[3], parts[4]);
-                    break;
-                }
+        boolean isLargeText = file.length() >= PARALLEL_LOAD_THRESHOLD_BYTES && !isBinarySnapshot();
+        if (isLargeText && Runtime.getRuntime().availableProcessors() > 1) {
+            tasks = loadParallel();
+        } else {
+            tasks = new ArrayList<>();
+            readSnapshot(tasks::add);
+        }
+        journalRecordCount = replayJournal(tasks, readJournalRecords());
+        return tasks;
+    }
+
+    /**
+     * Loads the snapshot by memory-mapping it and parsing chunks of lines in parallel on the
+     * common fork-join pool, preserving the order of the tasks in the file.
+     *
+     * @return the tasks in the snapshot
+     * @throws ChipException if the file is corrupted or cannot be read
+     */
+    private ArrayList<Task> loadParallel() throws ChipException {
+        try {
+            generation = readSnapshotGeneration();
+        } catch (IOException | NumberFormatException e) {
+            throw new ChipException(ERROR_CORRUPTED);
+        }
+        isGenerationKnown = true;
+        format = StorageFormat.TEXT;
+        try {
+            return ParallelTaskLoader.load(Path.of(filePath));
+        } catch (ChipException e) {
+            throw new ChipException(ERROR_CORRUPTED);
+        }
+    }
+
+    /**
+     * Passes every stored task to the consumer in order, without first collecting them in a list.
+     * Journal records that only add tasks are streamed after the snapshot. Deletions and status
+     * changes refer to positions in the full list, so a journal containing them is replayed
+     * through {@link #load()} instead.
+     *
+     * @param consumer the callback receiving each task
+     * @throws ChipException if the file is corrupted or cannot be read
+     */
+    public synchronized void forEachTask(Consumer<Task> consumer) throws ChipException {
+        try {
+            generation = readSnapshotGeneration();
+        } catch (IOException | NumberFormatException e) {
+            throw new ChipException(ERROR_CORRUPTED);
+        }
+        List<String> records = readJournalRecords();
+        for (String record : records) {
+            if (!record.startsWith(RECORD_ADD + FIELD_SEPARATOR)) {
+                load().forEach(consumer);
+                return;
+            }
+        }
+
+        readSnapshot(consumer);
+        for (int i = 0; i < records.size(); i++) {
+            Task task;
+            try {
+                task = TaskLineParser.parse(records.get(i).substring(RECORD_ADD.length() + SEPARATOR_LENGTH));
+            } catch (ChipException e) {
+                task = null;
+            }
+            if (task == null && i < records.size() - 1) {
+                throw new ChipException(ERROR_JOURNAL_CORRUPTED);
+            }
+            if (task != null) {
+                consumer.accept(task);
+            }
+        }
+    }
 
+    /**
+     * Reads the snapshot line by line, passing each task to the consumer and remembering the
+     * snapshot generation.
+     */
+    private void readSnapshot(Consumer<Task> consumer) throws ChipException {
+        generation = 0;
+        isGenerationKnown = true;
+        Path path = Path.of(filePath);
+        if (!Files.exists(path)) {
+            return;
+        }
+        if (isBinarySnapshot()) {
+            format = StorageFormat.BINARY;
+            try {
+                generation = BinaryTaskCodec.read(path, consumer);
+                noteNextId(BinaryTaskCodec.readNextId(path));
+            } catch (ChipException e) {
+                throw new ChipException(ERROR_CORRUPTED);
+            }
+            return;
+        }
+
+        format = StorageFormat.TEXT;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(SNAPSHOT_HEADER)) {
+                    generation = readHeader(line);
+                    continue;
+                }
+                Task task = TaskLineParser.parse(line);
                 if (task != null) {
-                    if (parts[1].equals("1")) {
-                        task.markAsDone();
-                    }
-                    tasks.add(task);
+                    consumer.accept(task);
                 }
             }
-        } catch (FileNotFoundException e) {
+        } catch (NoSuchFileException e) {
             throw new ChipException("Data file not found. Starting fresh.");
-        } catch (Exception e) {
-            throw new ChipException("Error loading tasks from file. The file might be corrupted.");
+        } catch (IOException | ChipException | RuntimeException e) {
+            throw new ChipException(ERROR_CORRUPTED);
         }
-        return tasks;
     }
 
     /**
      * Saves the list of tasks to the storage file.
-     * Creates the directory if it doesn't exist and writes tasks in the proper format.
+     * The tasks are written to a temporary file which is forced to disk and then atomically
+     * renamed over the data file. The journal, if any, is discarded afterwards since the new
+     * snapshot already contains its records. In write-behind mode the tasks are copied and
+     * written later by the writer thread.
      *
      * @param tasks the list of tasks to save
      * @throws ChipException if an I/O error occurs during saving
      */
-    public void save(ArrayList<Task> tasks) throws ChipException {
+    @Override
+    public void save(List<Task> tasks) throws ChipException {
+        if (deferToBatch()) {
+            return;
+        }
+        if (isWriteBehind) {
+            enqueueSnapshot(tasks);
+            return;
+        }
+        writeSnapshot(tasks);
+    }
+
+    /**
+     * Writes a snapshot of the tasks to disk immediately.
+     */
+    private synchronized void writeSnapshot(List<Task> tasks) throws ChipException {
+        for (Task task : tasks) {
+            noteId(task.getId());
+        }
+        long newGeneration = Math.max(generation + 1, System.currentTimeMillis());
         try {
             File file = new File(filePath);
-            File directory = file.getParentFile();
-            if (directory != null && !directory.exists()) {
-                directory.mkdirs();
+            createParentDirectory(file);
+            Path target = file.toPath();
+            Path temp = Path.of(filePath + TEMP_SUFFIX);
+
+            try (FileOutputStream output = new FileOutputStream(temp.toFile())) {
+                if (format == StorageFormat.BINARY) {
+                    BinaryTaskCodec.write(output, newGeneration, nextId.get(), tasks);
+                } else {
+                    writeText(output, newGeneration, nextId.get(), tasks);
+                }
+                output.getChannel().force(true);
+            }
+
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
             }
+            forceDirectory(file.getAbsoluteFile().getParentFile());
+        } catch (IOException e) {
+            throw new ChipException(ERROR_SAVING + e.getMessage());
+        }
+        generation = newGeneration;
+        isGenerationKnown = true;
+        clearJournal();
+    }
+
+    /**
+     * Writes a snapshot in the text format. The stream is flushed but not closed.
+     */
+    private static void writeText(OutputStream output, long generation, int nextId, List<Task> tasks)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writer.write(SNAPSHOT_HEADER + generation + NEXT_ID_FIELD + nextId + System.lineSeparator());
+        for (Task task : tasks) {
+            writer.write(TaskLineParser.format(task));
+            writer.write(System.lineSeparator());
+        }
+        writer.flush();
+    }
+
+    /**
+     * Returns the format snapshots are currently written in.
+     *
+     * @return the snapshot format
+     */
+    public synchronized StorageFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Rewrites the stored tasks, including any journal records, as a snapshot in the given format.
+     * Later saves keep using that format.
+     *
+     * @param newFormat the format to convert to
+     * @throws ChipException if the tasks cannot be read or written
+     */
+    public void convertTo(StorageFormat newFormat) throws ChipException {
+        flush();
+        synchronized (this) {
+            ArrayList<Task> tasks = load();
+            format = newFormat;
+            writeSnapshot(tasks);
+        }
+    }
+
+    /**
+     * Persists the addition of a task at the end of the list.
+     *
+     * @param tasks the full list of tasks after the addition
+     * @param task the task that was added
+     * @throws ChipException if an I/O error occurs during saving
+     */
+    @Override
+    public void recordAdd(List<Task> tasks, Task task) throws ChipException {
+        noteId(task.getId());
+        if (deferToBatch()) {
+            return;
+        }
+        if (!isJournaled) {
+            save(tasks);
+            return;
+        }
+        persistRecord(RECORD_ADD + FIELD_SEPARATOR + TaskLineParser.format(task));
+    }
 
-            try (FileWriter writer = new FileWriter(file)) {
-                for (Task task : tasks) {
-                    writer.write(task.toFileString() + System.lineSeparator());
+    /**
+     * Persists the removal of the task at the given position.
+     *
+     * @param tasks the full list of tasks after the removal
+     * @param index the 0-based index the task was removed from
+     * @throws ChipException if an I/O error occurs during saving
+     */
+    public void recordDelete(List<Task> tasks, int index) throws ChipException {
+        if (deferToBatch()) {
+            return;
+        }
+        if (!isJournaled) {
+            save(tasks);
+            return;
+        }
+        persistRecord(RECORD_DELETE + FIELD_SEPARATOR + index);
+    }
+
+    /**
+     * Persists the removal of a task by its position, the only thing the journal needs.
+     */
+    @Override
+    public void recordDelete(List<Task> tasks, int index, Task task) throws ChipException {
+        recordDelete(tasks, index);
+    }
+
+    /**
+     * Persists a change in completion status of the task at the given position.
+     *
+     * @param tasks the full list of tasks after the change
+     * @param index the 0-based index of the changed task
+     * @param isDone the new completion status of the task
+     * @throws ChipException if an I/O error occurs during saving
+     */
+    @Override
+    public void recordMark(List<Task> tasks, int index, boolean isDone) throws ChipException {
+        if (deferToBatch()) {
+            return;
+        }
+        if (!isJournaled) {
+            save(tasks);
+            return;
+        }
+        persistRecord((isDone ? RECORD_MARK : RECORD_UNMARK) + FIELD_SEPARATOR + index);
+    }
+
+    /**
+     * Starts a batch. Until the batch ends, saves and recorded changes are not written; the
+     * tasks are saved once by {@link #endBatch(List)} instead.
+     */
+    @Override
+    public synchronized void beginBatch() {
+        assert !isInBatch : "Batches cannot be nested";
+        isInBatch = true;
+        hasBatchChanges = false;
+    }
+
+    /**
+     * Ends the current batch, saving the tasks once if anything changed during the batch.
+     *
+     * @param tasks the full list of tasks at the end of the batch
+     * @throws ChipException if an I/O error occurs during saving
+     */
+    @Override
+    public void endBatch(List<Task> tasks) throws ChipException {
+        boolean hasChanges;
+        synchronized (this) {
+            assert isInBatch : "No batch to end";
+            hasChanges = hasBatchChanges;
+            isInBatch = false;
+        }
+        if (hasChanges) {
+            save(tasks);
+        }
+    }
+
+    /**
+     * Ends the current batch without writing anything. The stored tasks stay as they were before
+     * the batch started.
+     */
+    @Override
+    public synchronized void abortBatch() {
+        assert isInBatch : "No batch to abort";
+        isInBatch = false;
+    }
+
+    /**
+     * Returns whether a change should be left for the end of the current batch, noting that the
+     * batch has changes if so.
+     */
+    private synchronized boolean deferToBatch() {
+        if (isInBatch) {
+            hasBatchChanges = true;
+        }
+        return isInBatch;
+    }
+
+    /**
+     * Persists the removal of several tasks in a single journal record.
+     *
+     * @param tasks the full list of tasks after the removal
+     * @param indexes the 0-based indexes the tasks were removed from, counted before the removal,
+     *                in ascending order
+     * @throws ChipException if an I/O error occurs during saving
+     */
+    public void recordDelete(List<Task> tasks, int[] indexes) throws ChipException {
+        if (indexes.length == 1) {
+            recordDelete(tasks, indexes[0]);
+            return;
+        }
+        if (deferToBatch()) {
+            return;
+        }
+        if (!isJournaled) {
+            save(tasks);
+            return;
+        }
+        persistRecord(formatManyRecord(RECORD_DELETE, indexes));
+    }
+
+    /**
+     * Persists the removal of several tasks by their positions in a single journal record.
+     */
+    @Override
+    public void recordDelete(List<Task> tasks, int[] indexes, List<Task> removedTasks) throws ChipException {
+        recordDelete(tasks, indexes);
+    }
+
+    /**
+     * Persists a change in completion status of several tasks in a single journal record.
+     *
+     * @param tasks the full list of tasks after the change
+     * @param indexes the 0-based indexes of the changed tasks in ascending order
+     * @param isDone the new completion status of the tasks
+     * @throws ChipException if an I/O error occurs during saving
+     */
+    @Override
+    public void recordMark(List<Task> tasks, int[] indexes, boolean isDone) throws ChipException {
+        if (indexes.length == 1) {
+            recordMark(tasks, indexes[0], isDone);
+            return;
+        }
+        if (deferToBatch()) {
+            return;
+        }
+        if (!isJournaled) {
+            save(tasks);
+            return;
+        }
+        persistRecord(formatManyRecord(isDone ? RECORD_MARK : RECORD_UNMARK, indexes));
+    }
+
+    /**
+     * Formats a record that applies to several indexes, e.g. "DELETE_MANY | 0,4,9 | 3".
+     * The trailing count lets replay tell a complete record from one torn by a crash.
+     */
+    private static String formatManyRecord(String type, int[] indexes) {
+        StringBuilder record = new StringBuilder(type).append(RECORD_MANY_SUFFIX).append(FIELD_SEPARATOR);
+        for (int i = 0; i < indexes.length; i++) {
+            if (i > 0) {
+                record.append(INDEX_SEPARATOR);
+            }
+            record.append(indexes[i]);
+        }
+        return record.append(FIELD_SEPARATOR).append(indexes.length).toString();
+    }
+
+    /**
+     * Forces any journal appends that are still pending under the sync policy to disk.
+     *
+     * @throws ChipException if the journal cannot be forced to disk
+     */
+    public synchronized void sync() throws ChipException {
+        if (journalStream == null || unsyncedRecordCount == 0) {
+            return;
+        }
+        try {
+            journalStream.getChannel().force(false);
+        } catch (IOException e) {
+            throw new ChipException(ERROR_SAVING + e.getMessage());
+        }
+        unsyncedRecordCount = 0;
+        lastSyncMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Waits until every queued change has been written, then forces the journal to disk.
+     *
+     * @throws ChipException if the writer thread cannot write the queued changes
+     */
+    public void flush() throws ChipException {
+        synchronized (queueLock) {
+            while (isWriterBusy || pendingSnapshot != null || !pendingRecords.isEmpty()) {
+                if (writeFailure != null) {
+                    throw writeFailure;
+                }
+                try {
+                    queueLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ChipException("Interrupted while saving tasks.");
                 }
             }
+        }
+        sync();
+    }
+
+    /**
+     * Folds the journal into a fresh snapshot and truncates the journal.
+     *
+     * @throws ChipException if the snapshot or journal cannot be read or written
+     */
+    public synchronized void compact() throws ChipException {
+        if (!isJournaled || !new File(journalPath).exists()) {
+            return;
+        }
+        writeSnapshot(load());
+    }
+
+    /**
+     * Writes any queued changes, stops background work and closes the journal. The journal is
+     * folded into the snapshot only if it has grown past the compaction threshold; a shorter one
+     * is replayed on the next load instead, so closing costs no more than the last appends.
+     *
+     * @throws ChipException if the queued changes or the compaction cannot be written
+     */
+    @Override
+    public void close() throws ChipException {
+        flush();
+        stopWriter();
+        synchronized (this) {
+            stopBackground();
+            if (journalRecordCount >= COMPACTION_THRESHOLD) {
+                compact();
+            }
+            closeJournal();
+        }
+    }
+
+    /**
+     * Reads the journal records that apply on top of the current snapshot generation.
+     * A journal whose generation does not match the snapshot has already been folded into it
+     * and is discarded.
+     *
+     * @return the records after the generation header, empty if there is no applicable journal
+     * @throws ChipException if the journal cannot be read
+     */
+    private List<String> readJournalRecords() throws ChipException {
+        Path journal = Path.of(journalPath);
+        if (!isJournaled || !Files.exists(journal)) {
+            return new ArrayList<>();
+        }
+
+        ArrayList<String> records = new ArrayList<>();
+        long journalGeneration = 0;
+        try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (line != null && line.startsWith(RECORD_GENERATION + FIELD_SEPARATOR)) {
+                journalGeneration = Long.parseLong(line.substring(RECORD_GENERATION.length() + SEPARATOR_LENGTH));
+                line = reader.readLine();
+            }
+            while (line != null) {
+                records.add(line);
+                line = reader.readLine();
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new ChipException("Error reading the journal: " + e.getMessage());
+        }
+
+        if (journalGeneration != generation) {
+            clearJournal();
+            return new ArrayList<>();
+        }
+        return records;
+    }
+
+    /**
+     * Applies every journal record to the given snapshot tasks, in order.
+     * A malformed final record is treated as a torn write from a crash and ignored.
+     *
+     * @param tasks the tasks loaded from the snapshot
+     * @param records the journal records to apply
+     * @return the number of records replayed
+     * @throws ChipException if a record before the last one is malformed
+     */
+    private int replayJournal(ArrayList<Task> tasks, List<String> records) throws ChipException {
+        for (int i = 0; i < records.size(); i++) {
+            try {
+                applyRecord(records.get(i), tasks);
+            } catch (ChipException | RuntimeException e) {
+                if (i < records.size() - 1) {
+                    throw new ChipException(ERROR_JOURNAL_CORRUPTED);
+                }
+            }
+        }
+        return records.size();
+    }
+
+    /**
+     * Applies a single journal record to the tasks.
+     */
+    private void applyRecord(String record, ArrayList<Task> tasks) throws ChipException {
+        int separator = record.indexOf(FIELD_SEPARATOR);
+        String type = record.substring(0, separator);
+        String payload = record.substring(separator + SEPARATOR_LENGTH);
+
+        switch (type) {
+        case RECORD_ADD:
+            Task task = TaskLineParser.parse(payload);
+            if (task == null) {
+                throw new ChipException("Unknown task type in journal.");
+            }
+            // A later record may delete the task, but its id must still not be reused
+            noteId(task.getId());
+            tasks.add(task);
+            break;
+        case RECORD_DELETE:
+            tasks.remove(Integer.parseInt(payload));
+            break;
+        case RECORD_MARK:
+            tasks.get(Integer.parseInt(payload)).markAsDone();
+            break;
+        case RECORD_UNMARK:
+            tasks.get(Integer.parseInt(payload)).markAsNotDone();
+            break;
+        case RECORD_DELETE + RECORD_MANY_SUFFIX:
+            removeAll(tasks, parseManyPayload(payload, tasks.size()));
+            break;
+        case RECORD_MARK + RECORD_MANY_SUFFIX:
+            for (int index : parseManyPayload(payload, tasks.size())) {
+                tasks.get(index).markAsDone();
+            }
+            break;
+        case RECORD_UNMARK + RECORD_MANY_SUFFIX:
+            for (int index : parseManyPayload(payload, tasks.size())) {
+                tasks.get(index).markAsNotDone();
+            }
+            break;
+        default:
+            throw new ChipException("Unknown journal record: " + type);
+        }
+    }
+
+    /**
+     * Parses the payload of a record that applies to several indexes. The whole record is checked
+     * before any of it is applied.
+     *
+     * @throws ChipException if the count does not match or the indexes are not ascending and in range
+     */
+    private static int[] parseManyPayload(String payload, int size) throws ChipException {
+        int separator = payload.lastIndexOf(FIELD_SEPARATOR);
+        if (separator < 0) {
+            throw new ChipException(ERROR_JOURNAL_CORRUPTED);
+        }
+        String[] fields = payload.substring(0, separator).split(INDEX_SEPARATOR);
+        int count = Integer.parseInt(payload.substring(separator + SEPARATOR_LENGTH));
+        if (fields.length != count) {
+            throw new ChipException(ERROR_JOURNAL_CORRUPTED);
+        }
+        int[] indexes = new int[count];
+        for (int i = 0; i < count; i++) {
+            indexes[i] = Integer.parseInt(fields[i]);
+            if (indexes[i] < 0 || indexes[i] >= size || (i > 0 && indexes[i] <= indexes[i - 1])) {
+                throw new ChipException(ERROR_JOURNAL_CORRUPTED);
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * Removes the tasks at the given ascending indexes in one pass over the list.
+     */
+    private static void removeAll(ArrayList<Task> tasks, int[] indexes) {
+        int write = indexes[0];
+        int next = 0;
+        for (int read = indexes[0]; read < tasks.size(); read++) {
+            if (next < indexes.length && indexes[next] == read) {
+                next++;
+                continue;
+            }
+            tasks.set(write++, tasks.get(read));
+        }
+        tasks.subList(write, tasks.size()).clear();
+    }
+
+    /**
+     * Appends a journal record now, or queues it for the writer thread in write-behind mode.
+     */
+    private void persistRecord(String record) throws ChipException {
+        if (isWriteBehind) {
+            enqueueRecord(record);
+            return;
+        }
+        appendRecords(List.of(record));
+    }
+
+    /**
+     * Appends records to the journal in a single write, forces them to disk if the sync policy
+     * says so and starts background work on first use.
+     */
+    private synchronized void appendRecords(List<String> records) throws ChipException {
+        StringBuilder batch = new StringBuilder();
+        for (String record : records) {
+            batch.append(record).append(System.lineSeparator());
+        }
+        try {
+            openJournal();
+            journalStream.write(batch.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new ChipException(ERROR_SAVING + e.getMessage());
+        }
+        journalRecordCount += records.size();
+        unsyncedRecordCount += records.size();
+        if (syncPolicy.isSyncDue(unsyncedRecordCount, System.currentTimeMillis() - lastSyncMillis)) {
+            sync();
+        }
+        startBackground();
+    }
+
+    /**
+     * Opens the journal for appending, writing the generation header if the journal is new.
+     */
+    private void openJournal() throws IOException {
+        if (journalStream != null) {
+            return;
+        }
+        if (!isGenerationKnown) {
+            generation = readSnapshotGeneration();
+            isGenerationKnown = true;
+        }
+
+        File journal = new File(journalPath);
+        createParentDirectory(journal);
+        boolean isNew = !journal.exists() || journal.length() == 0;
+        journalStream = new FileOutputStream(journal, true);
+        lastSyncMillis = System.currentTimeMillis();
+        if (isNew) {
+            String header = RECORD_GENERATION + FIELD_SEPARATOR + generation + System.lineSeparator();
+            journalStream.write(header.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Returns whether the snapshot on disk is in the binary format.
+     */
+    private boolean isBinarySnapshot() throws ChipException {
+        try {
+            return BinaryTaskCodec.isBinary(Path.of(filePath));
+        } catch (IOException e) {
+            throw new ChipException(ERROR_CORRUPTED);
+        }
+    }
+
+    /**
+     * Parses a text snapshot header, noting its next id if it has one.
+     * Snapshots written before next ids were recorded only carry the generation.
+     *
+     * @return the snapshot generation
+     */
+    private long readHeader(String line) {
+        String header = line.substring(SNAPSHOT_HEADER.length());
+        int nextIdStart = header.indexOf(NEXT_ID_FIELD);
+        if (nextIdStart < 0) {
+            return Long.parseLong(header);
+        }
+        noteNextId(Integer.parseInt(header.substring(nextIdStart + NEXT_ID_FIELD.length())));
+        return Long.parseLong(header.substring(0, nextIdStart));
+    }
+
+    /**
+     * Returns the id after the highest one ever stored, including ids of tasks deleted since.
+     * Only meaningful after {@link #load()}.
+     *
+     * @return the id the next new task should get at the earliest
+     */
+    @Override
+    public int getNextId() {
+        return nextId.get();
+    }
+
+    private void noteId(int id) {
+        noteNextId(id + 1);
+    }
+
+    private void noteNextId(int candidate) {
+        nextId.accumulateAndGet(candidate, Math::max);
+    }
+
+    /**
+     * Reads the generation of the snapshot on disk without loading its tasks, noting the next id
+     * recorded with it.
+     */
+    private long readSnapshotGeneration() throws IOException {
+        File file = new File(filePath);
+        if (!file.exists()) {
+            return 0;
+        }
+        if (BinaryTaskCodec.isBinary(file.toPath())) {
+            try {
+                noteNextId(BinaryTaskCodec.readNextId(file.toPath()));
+                return BinaryTaskCodec.readGeneration(file.toPath());
+            } catch (ChipException e) {
+                throw new IOException(e.getMessage());
+            }
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (line != null && line.startsWith(SNAPSHOT_HEADER)) {
+                return readHeader(line);
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Removes the journal after its records have been folded into the snapshot.
+     */
+    private void clearJournal() {
+        if (!isJournaled) {
+            return;
+        }
+        // The journal is about to be deleted, so there is nothing to force to disk
+        unsyncedRecordCount = 0;
+        closeJournal();
+        new File(journalPath).delete();
+        journalRecordCount = 0;
+    }
+
+    /**
+     * Closes the journal stream after forcing it to disk. The file is reopened on the next append.
+     */
+    private void closeJournal() {
+        if (journalStream == null) {
+            return;
+        }
+        try {
+            if (unsyncedRecordCount > 0) {
+                journalStream.getChannel().force(false);
+            }
+            journalStream.close();
         } catch (IOException e) {
-            throw new ChipException("An error occurred while saving tasks: " + e.getMessage());
+            // The records were written already, so only the file handle is lost.
+        }
+        journalStream = null;
+        unsyncedRecordCount = 0;
+    }
+
+    /**
+     * Starts the background compactor and group-commit flusher on first use, on the shared
+     * scheduler if there is one.
+     */
+    private void startBackground() {
+        if (background != null) {
+            return;
+        }
+        if (sharedScheduler != null) {
+            background = sharedScheduler;
+        } else {
+            background = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "chip-storage");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        backgroundTasks.add(background.scheduleWithFixedDelay(this::compactIfNeeded,
+                COMPACTION_INTERVAL_SECONDS, COMPACTION_INTERVAL_SECONDS, TimeUnit.SECONDS));
+        long delay = syncPolicy.getMaxDelayMillis();
+        if (delay > 0) {
+            backgroundTasks.add(background.scheduleWithFixedDelay(this::syncIfDue,
+                    delay, delay, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    /**
+     * Cancels the background work, shutting down the scheduler only if this instance started it.
+     */
+    private void stopBackground() {
+        if (background == null) {
+            return;
+        }
+        for (ScheduledFuture<?> task : backgroundTasks) {
+            task.cancel(false);
+        }
+        backgroundTasks.clear();
+        if (background != sharedScheduler) {
+            background.shutdownNow();
+        }
+        background = null;
+    }
+
+    /**
+     * Compacts the journal once it has grown past the threshold.
+     */
+    private synchronized void compactIfNeeded() {
+        if (journalRecordCount < COMPACTION_THRESHOLD) {
+            return;
+        }
+        try {
+            compact();
+        } catch (ChipException e) {
+            // The journal is still intact, so the next run will try again.
+        }
+    }
+
+    /**
+     * Forces pending appends to disk once they have waited longer than the sync policy allows.
+     */
+    private synchronized void syncIfDue() {
+        if (!syncPolicy.isSyncDue(unsyncedRecordCount, System.currentTimeMillis() - lastSyncMillis)) {
+            return;
+        }
+        try {
+            sync();
+        } catch (ChipException e) {
+            // The records are still buffered by the OS, so the next run will try again.
+        }
+    }
+
+    /**
+     * Queues a copy of the tasks to be written as a snapshot. Journal records queued earlier are
+     * already reflected in the tasks, so they are dropped.
+     */
+    private void enqueueSnapshot(List<Task> tasks) {
+        synchronized (queueLock) {
+            pendingSnapshot = new ArrayList<>(tasks);
+            pendingRecords.clear();
+            startWriter();
+            queueLock.notifyAll();
+        }
+    }
+
+    /**
+     * Queues a journal record for the writer thread.
+     */
+    private void enqueueRecord(String record) {
+        synchronized (queueLock) {
+            pendingRecords.add(record);
+            startWriter();
+            queueLock.notifyAll();
+        }
+    }
+
+    /**
+     * Starts the writer thread and its shutdown hook on first use.
+     */
+    private void startWriter() {
+        if (writer != null) {
+            return;
+        }
+        isWriterStopping = false;
+        writer = new Thread(this::runWriter, "chip-storage-writer");
+        writer.setDaemon(true);
+        writer.start();
+        shutdownHook = new Thread(this::flushOnShutdown, "chip-storage-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Stops the writer thread once the queue has drained and removes its shutdown hook.
+     */
+    private void stopWriter() {
+        Thread stoppedWriter;
+        synchronized (queueLock) {
+            if (writer == null) {
+                return;
+            }
+            stoppedWriter = writer;
+            isWriterStopping = true;
+            writer = null;
+            queueLock.notifyAll();
+        }
+        try {
+            stoppedWriter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // The JVM is already shutting down and running the hook.
+        }
+        shutdownHook = null;
+    }
+
+    /**
+     * Main loop of the writer thread. Takes everything queued since the last write and writes it
+     * at once: first the latest snapshot, if any, then the journal records queued after it.
+     */
+    private void runWriter() {
+        while (true) {
+            ArrayList<Task> snapshot;
+            ArrayList<String> records;
+            synchronized (queueLock) {
+                while (pendingSnapshot == null && pendingRecords.isEmpty()) {
+                    if (isWriterStopping) {
+                        return;
+                    }
+                    try {
+                        queueLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                snapshot = pendingSnapshot;
+                records = pendingRecords;
+                pendingSnapshot = null;
+                pendingRecords = new ArrayList<>();
+                isWriterBusy = true;
+            }
+
+            boolean isWritten = writePending(snapshot, records);
+
+            synchronized (queueLock) {
+                isWriterBusy = false;
+                queueLock.notifyAll();
+            }
+            if (!isWritten) {
+                try {
+                    Thread.sleep(WRITE_RETRY_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes one batch taken from the queue. On failure the batch is put back in front of anything
+     * queued meanwhile, unless a newer snapshot already covers it.
+     *
+     * @return true if the batch was written
+     */
+    private boolean writePending(ArrayList<Task> snapshot, ArrayList<String> records) {
+        try {
+            synchronized (this) {
+                if (snapshot != null) {
+                    writeSnapshot(snapshot);
+                }
+                if (!records.isEmpty()) {
+                    appendRecords(records);
+                }
+            }
+            synchronized (queueLock) {
+                writeFailure = null;
+            }
+            return true;
+        } catch (ChipException e) {
+            synchronized (queueLock) {
+                writeFailure = e;
+                if (pendingSnapshot == null) {
+                    pendingSnapshot = snapshot;
+                    records.addAll(pendingRecords);
+                    pendingRecords = records;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Drains the queue when the JVM exits without {@link #close()} being called.
+     */
+    private void flushOnShutdown() {
+        try {
+            flush();
+        } catch (ChipException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Forces the directory entry of a renamed file to disk where the platform supports it.
+     */
+    private static void forceDirectory(File directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Some platforms cannot open directories; the rename itself is still atomic there.
+        }
+    }
+
+    private static void createParentDirectory(File file) {
+        File directory = file.getParentFile();
+        if (directory != null && !directory.exists()) {
+            directory.mkdirs();
         }
     }
-}
\ No newline at end of file
+}
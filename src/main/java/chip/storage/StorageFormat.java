@@ -0,0 +1,11 @@
+package chip.storage;
+
+/**
+ * Enumeration of the on-disk formats a snapshot can be written in.
+ */
+public enum StorageFormat {
+    /** Human-readable lines such as "T | 0 | description" */
+    TEXT,
+    /** Compact versioned binary records written by {@link BinaryTaskCodec} */
+    BINARY
+}
@@ -0,0 +1,47 @@
+package chip.storage;
+
+/**
+ * Describes how often journal appends are forced to disk.
+ * Appends are grouped so that at most one fsync happens per batch of writes or per time window,
+ * whichever limit is reached first.
+ */
+public class SyncPolicy {
+    /** Forces every append to disk before the mutation is acknowledged. */
+    public static final SyncPolicy ALWAYS = new SyncPolicy(1, 0);
+
+    private final int maxPendingWrites;
+    private final long maxDelayMillis;
+
+    /**
+     * Constructs a SyncPolicy with the given limits.
+     *
+     * @param maxPendingWrites the number of unsynced appends that triggers an fsync
+     * @param maxDelayMillis the longest time an append may stay unsynced, 0 to rely on the count only
+     */
+    public SyncPolicy(int maxPendingWrites, long maxDelayMillis) {
+        assert maxPendingWrites > 0 : "Pending write limit must be positive";
+        assert maxDelayMillis >= 0 : "Delay cannot be negative";
+        this.maxPendingWrites = maxPendingWrites;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public int getMaxPendingWrites() {
+        return maxPendingWrites;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * Returns whether the pending appends should be forced to disk now.
+     *
+     * @param pendingWrites the number of appends since the last fsync
+     * @param millisSinceSync the time elapsed since the last fsync
+     * @return true if an fsync is due
+     */
+    public boolean isSyncDue(int pendingWrites, long millisSinceSync) {
+        return pendingWrites >= maxPendingWrites
+                || (maxDelayMillis > 0 && pendingWrites > 0 && millisSinceSync >= maxDelayMillis);
+    }
+}
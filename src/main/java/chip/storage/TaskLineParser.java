@@ -0,0 +1,156 @@
+package chip.storage;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+
+import chip.ChipException;
+import chip.task.Deadline;
+import chip.task.Event;
+import chip.task.Task;
+import chip.task.Todo;
+
+/**
+ * Parses lines of the text data file into tasks and formats tasks as lines.
+ * Splits on the literal " | " delimiter with indexOf instead of a regex and reads the fixed-width
+ * "yyyy-MM-dd HHmm" dates digit by digit, so parsing a line allocates little beyond the task itself.
+ *
+ * <p>A line starts with the task id, e.g. "17 | T | 0 | read book". Lines written before tasks
+ * had ids start directly with the type marker; their tasks get ids when added to a task list.
+ */
+class TaskLineParser {
+
+    // Constants
+    private static final String FIELD_SEPARATOR = " | ";
+    private static final int SEPARATOR_LENGTH = FIELD_SEPARATOR.length();
+    private static final int DATE_LENGTH = "yyyy-MM-dd HHmm".length();
+    private static final int MAX_DIGITS = 9;
+    private static final String ERROR_MALFORMED = "Malformed task line: ";
+
+    private TaskLineParser() {
+    }
+
+    /**
+     * Parses one line of the text format into a task.
+     * The description is everything between the status field and the date fields, so it may
+     * itself contain the delimiter.
+     *
+     * @param line the line to parse
+     * @return the parsed task, or null if the line does not start with a known type marker
+     * @throws ChipException if the line is malformed or a date is invalid
+     */
+    static Task parse(String line) throws ChipException {
+        int id = 0;
+        int start = 0;
+        if (!line.isEmpty() && isDigit(line.charAt(0))) {
+            int idEnd = line.indexOf(FIELD_SEPARATOR);
+            if (idEnd < 0) {
+                throw new ChipException(ERROR_MALFORMED + line);
+            }
+            id = digits(line, 0, idEnd);
+            if (id <= 0) {
+                throw new ChipException(ERROR_MALFORMED + line);
+            }
+            start = idEnd + SEPARATOR_LENGTH;
+        }
+
+        if (line.length() < start + 2 * SEPARATOR_LENGTH + 2 || line.charAt(start + 1) != ' ') {
+            return null;
+        }
+        char type = line.charAt(start);
+        if (type != 'T' && type != 'D' && type != 'E') {
+            return null;
+        }
+        if (!line.startsWith(FIELD_SEPARATOR, start + 1)
+                || !line.startsWith(FIELD_SEPARATOR, start + SEPARATOR_LENGTH + 2)) {
+            throw new ChipException(ERROR_MALFORMED + line);
+        }
+
+        boolean isDone = line.charAt(start + SEPARATOR_LENGTH + 1) == '1';
+        int descriptionStart = start + 2 * SEPARATOR_LENGTH + 2;
+        Task task;
+        switch (type) {
+        case 'T':
+            task = new Todo(line.substring(descriptionStart));
+            break;
+        case 'D': {
+            int byStart = line.length() - DATE_LENGTH;
+            checkSeparatorBefore(line, byStart, descriptionStart);
+            task = new Deadline(line.substring(descriptionStart, byStart - SEPARATOR_LENGTH),
+                    parseDate(line, byStart));
+            break;
+        }
+        default: {
+            int toStart = line.length() - DATE_LENGTH;
+            int fromStart = toStart - SEPARATOR_LENGTH - DATE_LENGTH;
+            checkSeparatorBefore(line, toStart, descriptionStart);
+            checkSeparatorBefore(line, fromStart, descriptionStart);
+            task = new Event(line.substring(descriptionStart, fromStart - SEPARATOR_LENGTH),
+                    parseDate(line, fromStart), parseDate(line, toStart));
+            break;
+        }
+        }
+
+        if (isDone) {
+            task.markAsDone();
+        }
+        if (id > 0) {
+            task.setId(id);
+        }
+        return task;
+    }
+
+    /**
+     * Formats a task as one line of the text format, prefixed with its id if it has one.
+     *
+     * @param task the task to format
+     * @return the line, without a line separator
+     */
+    static String format(Task task) {
+        if (task.getId() == 0) {
+            return task.toFileString();
+        }
+        return task.getId() + FIELD_SEPARATOR + task.toFileString();
+    }
+
+    private static void checkSeparatorBefore(String line, int fieldStart, int descriptionStart)
+            throws ChipException {
+        int separatorStart = fieldStart - SEPARATOR_LENGTH;
+        if (separatorStart <= descriptionStart || !line.startsWith(FIELD_SEPARATOR, separatorStart)) {
+            throw new ChipException(ERROR_MALFORMED + line);
+        }
+    }
+
+    /**
+     * Parses a "yyyy-MM-dd HHmm" date starting at the given offset without a formatter.
+     */
+    private static LocalDateTime parseDate(String line, int start) throws ChipException {
+        if (line.charAt(start + 4) != '-' || line.charAt(start + 7) != '-' || line.charAt(start + 10) != ' ') {
+            throw new ChipException(ERROR_MALFORMED + line);
+        }
+        try {
+            return LocalDateTime.of(digits(line, start, 4), digits(line, start + 5, 2),
+                    digits(line, start + 8, 2), digits(line, start + 11, 2), digits(line, start + 13, 2));
+        } catch (DateTimeException e) {
+            throw new ChipException(ERROR_MALFORMED + line);
+        }
+    }
+
+    private static int digits(String line, int start, int count) throws ChipException {
+        if (count > MAX_DIGITS) {
+            throw new ChipException(ERROR_MALFORMED + line);
+        }
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = line.charAt(i);
+            if (!isDigit(c)) {
+                throw new ChipException(ERROR_MALFORMED + line);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
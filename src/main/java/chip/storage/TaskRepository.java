@@ -0,0 +1,117 @@
+package chip.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import chip.ChipException;
+import chip.task.Task;
+
+/**
+ * Persists the task list. Commands report each change as it happens, so a backend can write only
+ * what changed instead of the whole list.
+ *
+ * <p>Every change is reported with the full list after the change, both the positions and the
+ * tasks involved, so a backend may persist by position, by task id or by rewriting everything.
+ */
+public interface TaskRepository {
+
+    /**
+     * Loads the stored tasks in list order.
+     *
+     * @return the stored tasks, empty if nothing has been stored yet
+     * @throws ChipException if the stored data is corrupted or cannot be read
+     */
+    ArrayList<Task> load() throws ChipException;
+
+    /**
+     * Returns the id after the highest one ever stored, including ids of tasks deleted since, so
+     * a new task never gets the id of a deleted one. Only meaningful after {@link #load()}.
+     *
+     * @return the id the next new task should get at the earliest
+     */
+    int getNextId();
+
+    /**
+     * Replaces everything stored with the given tasks, e.g. after the list was reordered.
+     *
+     * @param tasks the full list of tasks
+     * @throws ChipException if an I/O error occurs during saving
+     */
+    void save(List<Task> tasks) throws ChipException;
+
+    /**
+     * Persists the addition of a task at the end of the list.
+     *
+     * @param tasks the full list of tasks after the addition
+     * @param task the task that was added
+     * @throws ChipException if an I/O error occurs during saving
+     */
+    void recordAdd(List<Task> tasks, Task task) throws ChipException;
+
+    /**
+     * Persists the removal of a task.
+     *
+     * @param tasks the full list of tasks after the removal
+     * @param index the 0-based index the task was removed from
+     * @param task the task that was removed
+     * @throws ChipException if an I/O error occurs during saving
+     */
+    void recordDelete(List<Task> tasks, int index, Task task) throws ChipException;
+
+    /**
+     * Persists the removal of several tasks.
+     *
+     * @param tasks the full list of tasks after the removal
+     * @param indexes the 0-based indexes the tasks were removed from, counted before the removal,
+     *                in ascending order
+     * @param removedTasks the tasks that were removed, in the order of the indexes
+     * @throws ChipException if an I/O error occurs during saving
+     */
+    void recordDelete(List<Task> tasks, int[] indexes, List<Task> removedTasks) throws ChipException;
+
+    /**
+     * Persists a change in completion status of a task.
+     *
+     * @param tasks the full list of tasks after the change
+     * @param index the 0-based index of the changed task
+     * @param isDone the new completion status of the task
+     * @throws ChipException if an I/O error occurs during saving
+     */
+    void recordMark(List<Task> tasks, int index, boolean isDone) throws ChipException;
+
+    /**
+     * Persists a change in completion status of several tasks.
+     *
+     * @param tasks the full list of tasks after the change
+     * @param indexes the 0-based indexes of the changed tasks in ascending order
+     * @param isDone the new completion status of the tasks
+     * @throws ChipException if an I/O error occurs during saving
+     */
+    void recordMark(List<Task> tasks, int[] indexes, boolean isDone) throws ChipException;
+
+    /**
+     * Starts a batch. Until the batch ends, changes are not written; the tasks are saved once by
+     * {@link #endBatch(List)} instead.
+     */
+    void beginBatch();
+
+    /**
+     * Ends the current batch, saving the tasks once if anything changed during the batch.
+     *
+     * @param tasks the full list of tasks at the end of the batch
+     * @throws ChipException if an I/O error occurs during saving
+     */
+    void endBatch(List<Task> tasks) throws ChipException;
+
+    /**
+     * Ends the current batch without writing anything.
+     */
+    void abortBatch();
+
+    /**
+     * Writes any outstanding changes and releases the files held open.
+     *
+     * @throws ChipException if the outstanding changes cannot be written
+     */
+    void close() throws ChipException;
+}
@@ -0,0 +1,47 @@
+package chip.task;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * A request to stop a long-running query or sort, set from another thread.
+ *
+ * <p>Cancellation is cooperative: the running operation checks the request every so often and
+ * gives up by throwing {@link CancellationException}, leaving the task list as it was. Thread
+ * interrupts are not used, because an interrupt that lands while storage is being forced to disk
+ * would close its file.
+ */
+public class Cancellation {
+
+    /** A cancellation that is never requested */
+    public static final Cancellation NONE = new Cancellation();
+
+    private volatile boolean isRequested;
+
+    /**
+     * Asks the operation watching this cancellation to stop.
+     */
+    public void request() {
+        assert this != NONE : "NONE cannot be requested";
+        isRequested = true;
+    }
+
+    /**
+     * Returns whether cancellation has been requested.
+     *
+     * @return true if the operation should stop
+     */
+    public boolean isRequested() {
+        return isRequested;
+    }
+
+    /**
+     * Throws if cancellation has been requested.
+     *
+     * @throws CancellationException if the operation should stop
+     */
+    public void throwIfRequested() {
+        if (isRequested) {
+            throw new CancellationException();
+        }
+    }
+}
@@ -2,15 +2,15 @@ package chip.task;
 
 import chip.ChipException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 
 /**
  * Represents a task with a deadline.
  * Extends the base Task class to include deadline functionality and formatting.
+ * The deadline is kept to the minute, as minutes since the epoch.
  */
 public class Deadline extends Task {
-    private LocalDateTime by;
+    private final long byMinute;
 
     /**
      * Constructs a new Deadline task with the given description and deadline.
@@ -22,13 +22,54 @@ public class Deadline extends Task {
     public Deadline(String description, String by) throws ChipException {
         super(description);
         try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HHmm");
-            this.by = LocalDateTime.parse(by, formatter);
+            this.byMinute = EpochMinutes.of(LocalDateTime.parse(by, FILE_DATE_FORMAT));
         } catch (DateTimeParseException e) {
             throw new ChipException("Please use the date/time format yyyy-MM-dd HHmm.");
         }
     }
 
+    /**
+     * Constructs a new Deadline task with an already parsed deadline.
+     *
+     * @param description the description of the deadline task
+     * @param by the deadline date/time
+     */
+    public Deadline(String description, LocalDateTime by) {
+        super(description);
+        assert by != null : "Deadline cannot be null";
+        this.byMinute = EpochMinutes.of(by);
+    }
+
+    /**
+     * Constructs a new Deadline task with a deadline given in minutes since the epoch.
+     *
+     * @param description the description of the deadline task
+     * @param byMinute the deadline, see {@link #getByMinute()}
+     */
+    public Deadline(String description, long byMinute) {
+        super(description);
+        this.byMinute = byMinute;
+    }
+
+    /**
+     * Returns the deadline of this task.
+     *
+     * @return the deadline date/time
+     */
+    public LocalDateTime getBy() {
+        return EpochMinutes.toDateTime(byMinute);
+    }
+
+    /**
+     * Returns the deadline of this task as minutes since 1970-01-01 00:00, which orders deadlines
+     * the same way as {@link #getBy()} without creating a date object.
+     *
+     * @return the deadline in minutes since the epoch
+     */
+    public long getByMinute() {
+        return byMinute;
+    }
+
     /**
      * AI-Enhanced: Returns the file format string for this deadline task.
      * Format: "D | status | priority | description | deadline"
@@ -37,7 +78,7 @@ public class Deadline extends Task {
      */
     @Override
     public String toFileString() {
-        String formattedDate = this.by.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HHmm"));
+        String formattedDate = getBy().format(FILE_DATE_FORMAT);
         return "D | " + super.toFileString() + " | " + formattedDate;
     }
 
@@ -48,8 +89,8 @@ public class Deadline extends Task {
      * @return the display format string representation
      */
     @Override
-    public String toString() {
-        String formattedDate = this.by.format(DateTimeFormatter.ofPattern("MMM dd yyyy, h:mma"));
-        return "[D]" + super.toString() + " (by: " + formattedDate + ")";
+    protected String buildDisplayString() {
+        String formattedDate = getBy().format(DISPLAY_DATE_FORMAT);
+        return "[D]" + super.buildDisplayString() + " (by: " + formattedDate + ")";
     }
 }
\ No newline at end of file
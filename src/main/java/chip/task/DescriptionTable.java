@@ -0,0 +1,47 @@
+package chip.task;
+
+/**
+ * A bounded table that lets tasks with the same description share one string.
+ *
+ * <p>Task lists repeat descriptions a lot ("standup", "pay rent"), and every task loaded from the
+ * data file would otherwise hold its own copy. The table is a fixed array of slots chosen by the
+ * hash of the description; a description is replaced by the copy already in its slot if they are
+ * equal, and otherwise takes the slot over. The table therefore never grows, keeps the recurring
+ * descriptions that matter, and forgets rare ones. Unlike {@link String#intern()} it holds nothing
+ * beyond its fixed size.
+ *
+ * <p>Threads may use the table without locking. A slot read during a concurrent write yields either
+ * string, and strings are immutable, so the worst case is a missed share.
+ */
+final class DescriptionTable {
+
+    // Constants
+    private static final int SLOT_COUNT = 1 << 14;
+    private static final int MAX_SHARED_LENGTH = 128;
+
+    private static final String[] SLOTS = new String[SLOT_COUNT];
+
+    private DescriptionTable() {
+    }
+
+    /**
+     * Returns an equal description already in the table, or the given one after adding it.
+     * Long descriptions are returned as they are, which keeps the memory of the table bounded.
+     *
+     * @param description the description to share
+     * @return an equal description, possibly the same object
+     */
+    static String share(String description) {
+        if (description.length() > MAX_SHARED_LENGTH) {
+            return description;
+        }
+        int hash = description.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & (SLOT_COUNT - 1);
+        String shared = SLOTS[slot];
+        if (description.equals(shared)) {
+            return shared;
+        }
+        SLOTS[slot] = description;
+        return description;
+    }
+}
@@ -0,0 +1,49 @@
+package chip.task;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Converts between dates and times and the number of minutes since 1970-01-01 00:00.
+ * Tasks store their dates this way, as one primitive long instead of three objects; the offset is
+ * fixed, so the minutes only encode the wall-clock date and time the user typed.
+ */
+final class EpochMinutes {
+
+    // Constants
+    private static final int SECONDS_PER_MINUTE = 60;
+
+    private EpochMinutes() {
+    }
+
+    /**
+     * Returns the minute of a date and time, dropping any seconds.
+     *
+     * @param dateTime the date and time
+     * @return the minutes since the epoch
+     */
+    static long of(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), SECONDS_PER_MINUTE);
+    }
+
+    /**
+     * Returns the first minute at or after a date and time, rounding up any seconds.
+     *
+     * @param dateTime the date and time
+     * @return the minutes since the epoch
+     */
+    static long ceilingOf(LocalDateTime dateTime) {
+        long epochMinute = of(dateTime);
+        return toDateTime(epochMinute).equals(dateTime) ? epochMinute : epochMinute + 1;
+    }
+
+    /**
+     * Returns the date and time of a minute.
+     *
+     * @param epochMinute the minutes since the epoch
+     * @return the date and time
+     */
+    static LocalDateTime toDateTime(long epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * SECONDS_PER_MINUTE, 0, ZoneOffset.UTC);
+    }
+}
@@ -2,16 +2,16 @@ package chip.task;
 
 import chip.ChipException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 
 /**
  * Represents a task that occurs during a specific time period.
  * Extends the base Task class to include start and end time functionality.
+ * The start and end times are kept to the minute, as minutes since the epoch.
  */
 public class Event extends Task {
-    private LocalDateTime from;
-    private LocalDateTime to;
+    private final long fromMinute;
+    private final long toMinute;
 
     /**
      * Constructs a new Event task with the given description, start time, and end time.
@@ -24,14 +24,77 @@ public class Event extends Task {
     public Event(String description, String from, String to) throws ChipException {
         super(description);
         try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HHmm");
-            this.from = LocalDateTime.parse(from, formatter);
-            this.to = LocalDateTime.parse(to, formatter);
+            this.fromMinute = EpochMinutes.of(LocalDateTime.parse(from, FILE_DATE_FORMAT));
+            this.toMinute = EpochMinutes.of(LocalDateTime.parse(to, FILE_DATE_FORMAT));
         } catch (DateTimeParseException e) {
             throw new ChipException("Oops! Please use the date/time format yyyy-MM-dd HHmm for from/to dates.");
         }
     }
 
+    /**
+     * Constructs a new Event task with already parsed start and end times.
+     *
+     * @param description the description of the event
+     * @param from the start date/time
+     * @param to the end date/time
+     */
+    public Event(String description, LocalDateTime from, LocalDateTime to) {
+        super(description);
+        assert from != null : "Start time cannot be null";
+        assert to != null : "End time cannot be null";
+        this.fromMinute = EpochMinutes.of(from);
+        this.toMinute = EpochMinutes.of(to);
+    }
+
+    /**
+     * Constructs a new Event task with start and end times given in minutes since the epoch.
+     *
+     * @param description the description of the event
+     * @param fromMinute the start time, see {@link #getFromMinute()}
+     * @param toMinute the end time, see {@link #getToMinute()}
+     */
+    public Event(String description, long fromMinute, long toMinute) {
+        super(description);
+        this.fromMinute = fromMinute;
+        this.toMinute = toMinute;
+    }
+
+    /**
+     * Returns the start time of this event.
+     *
+     * @return the start date/time
+     */
+    public LocalDateTime getFrom() {
+        return EpochMinutes.toDateTime(fromMinute);
+    }
+
+    /**
+     * Returns the start time of this event as minutes since 1970-01-01 00:00.
+     *
+     * @return the start time in minutes since the epoch
+     */
+    public long getFromMinute() {
+        return fromMinute;
+    }
+
+    /**
+     * Returns the end time of this event.
+     *
+     * @return the end date/time
+     */
+    public LocalDateTime getTo() {
+        return EpochMinutes.toDateTime(toMinute);
+    }
+
+    /**
+     * Returns the end time of this event as minutes since 1970-01-01 00:00.
+     *
+     * @return the end time in minutes since the epoch
+     */
+    public long getToMinute() {
+        return toMinute;
+    }
+
     /**
      * AI-Enhanced: Returns the file format string for this event task.
      * Format: "E | status | priority | description | start_time | end_time"
@@ -40,9 +103,8 @@ public class Event extends Task {
      */
     @Override
     public String toFileString() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HHmm");
-        String formattedFrom = this.from.format(formatter);
-        String formattedTo = this.to.format(formatter);
+        String formattedFrom = getFrom().format(FILE_DATE_FORMAT);
+        String formattedTo = getTo().format(FILE_DATE_FORMAT);
         return "E | " + super.toFileString() + " | " + formattedFrom + " | " + formattedTo;
     }
 
@@ -53,9 +115,9 @@ public class Event extends Task {
      * @return the display format string representation
      */
     @Override
-    public String toString() {
-        String formattedFrom = this.from.format(DateTimeFormatter.ofPattern("MMM dd yyyy, h:mma"));
-        String formattedTo = this.to.format(DateTimeFormatter.ofPattern("h:mma"));
-        return "[E]" + super.toString() + " (from: " + formattedFrom + " to: " + formattedTo + ")";
+    protected String buildDisplayString() {
+        String formattedFrom = getFrom().format(DISPLAY_DATE_FORMAT);
+        String formattedTo = getTo().format(DISPLAY_TIME_FORMAT);
+        return "[E]" + super.buildDisplayString() + " (from: " + formattedFrom + " to: " + formattedTo + ")";
     }
 }
\ No newline at end of file
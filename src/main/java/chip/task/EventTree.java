@@ -0,0 +1,195 @@
+package chip.task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Interval tree over events, used to find the events overlapping a range.
+ *
+ * <p>The tree is a treap ordered by start minute, with one node per distinct start. Every node also
+ * records the latest end time in its subtree, so a query skips any subtree that ends before the
+ * range and stops at nodes starting after it. An overlap query therefore costs O(log n + k) for
+ * k matches, however long the longest event is.
+ */
+class EventTree {
+
+    private final Random random = new Random();
+    private Node root;
+
+    /**
+     * Removes all events from the tree.
+     */
+    void clear() {
+        root = null;
+    }
+
+    /**
+     * Adds an event to the tree.
+     *
+     * @param event the event to add
+     */
+    void add(Event event) {
+        root = insert(root, event);
+    }
+
+    /**
+     * Removes an event from the tree. Does nothing if the event is not in it.
+     *
+     * @param event the event to remove
+     */
+    void remove(Event event) {
+        root = delete(root, event);
+    }
+
+    /**
+     * Finds the events overlapping a range, ordered by start time.
+     *
+     * @param fromMinute the start of the range in epoch minutes, inclusive
+     * @param toMinute the end of the range in epoch minutes, inclusive
+     * @return the events that start no later than {@code toMinute} and end no earlier than
+     *     {@code fromMinute}
+     */
+    List<Event> findOverlapping(long fromMinute, long toMinute) {
+        List<Event> result = new ArrayList<>();
+        collect(root, fromMinute, toMinute, result);
+        return result;
+    }
+
+    private static void collect(Node node, long fromMinute, long toMinute, List<Event> result) {
+        if (node == null || node.maxEnd < fromMinute) {
+            return;
+        }
+        collect(node.left, fromMinute, toMinute, result);
+        if (node.start > toMinute) {
+            return;
+        }
+        for (Event event : node.events) {
+            if (event.getToMinute() >= fromMinute) {
+                result.add(event);
+            }
+        }
+        collect(node.right, fromMinute, toMinute, result);
+    }
+
+    private Node insert(Node node, Event event) {
+        if (node == null) {
+            Node created = new Node(event.getFromMinute(), random.nextInt());
+            created.events.add(event);
+            created.update();
+            return created;
+        }
+        int comparison = Long.compare(event.getFromMinute(), node.start);
+        if (comparison == 0) {
+            node.events.add(event);
+        } else if (comparison < 0) {
+            node.left = insert(node.left, event);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, event);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        node.update();
+        return node;
+    }
+
+    private static Node delete(Node node, Event event) {
+        if (node == null) {
+            return null;
+        }
+        int comparison = Long.compare(event.getFromMinute(), node.start);
+        if (comparison < 0) {
+            node.left = delete(node.left, event);
+        } else if (comparison > 0) {
+            node.right = delete(node.right, event);
+        } else {
+            for (int i = 0; i < node.events.size(); i++) {
+                if (node.events.get(i) == event) {
+                    node.events.remove(i);
+                    break;
+                }
+            }
+            if (node.events.isEmpty()) {
+                return merge(node.left, node.right);
+            }
+        }
+        node.update();
+        return node;
+    }
+
+    /**
+     * Joins two treaps where every start in {@code left} is before every start in {@code right}.
+     */
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    /**
+     * A distinct start time with the events starting at it.
+     */
+    private static class Node {
+        private final long start;
+        private final int priority;
+        private final List<Event> events = new ArrayList<>();
+        private long maxEnd;
+        private Node left;
+        private Node right;
+
+        Node(long start, int priority) {
+            this.start = start;
+            this.priority = priority;
+        }
+
+        /**
+         * Recomputes the latest end time in this subtree from the node and its children.
+         */
+        void update() {
+            long latest = Long.MIN_VALUE;
+            for (Event event : events) {
+                latest = Math.max(latest, event.getToMinute());
+            }
+            if (left != null) {
+                latest = Math.max(latest, left.maxEnd);
+            }
+            if (right != null) {
+                latest = Math.max(latest, right.maxEnd);
+            }
+            maxEnd = latest;
+        }
+    }
+}
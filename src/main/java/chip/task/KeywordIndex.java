@@ -0,0 +1,175 @@
+package chip.task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Inverted trigram index over the display text of tasks, used to answer substring searches
+ * without formatting every task.
+ *
+ * <p>Each indexed task gets a slot number in list order. For every three-character sequence of
+ * its display text, lowercased, the index keeps a sorted posting list of slots. A query intersects
+ * the posting lists of its own trigrams and verifies the few remaining candidates, so results come
+ * out in list order.
+ *
+ * <p>Only the text from the space after the status icon onwards is indexed. That part (description
+ * and dates) never changes, so marking a task needs no index update. Keywords that are shorter than
+ * a trigram or contain a bracket could match inside the "[T][X]" prefix and are not answered by the
+ * index.
+ */
+class KeywordIndex {
+
+    // Constants
+    private static final int GRAM_LENGTH = 3;
+    private static final int INDEXED_TEXT_START = "[T][X]".length();
+    private static final int INITIAL_POSTING_CAPACITY = 4;
+
+    private final HashMap<Long, Postings> postings = new HashMap<>();
+    private final ArrayList<Task> slots = new ArrayList<>();
+    private final IdentityHashMap<Task, Integer> slotOf = new IdentityHashMap<>();
+    private int deadSlotCount;
+
+    /**
+     * Returns whether the index can answer a search for the keyword.
+     *
+     * @param lowerKeyword the lowercase keyword
+     * @return true if every match of the keyword lies in the indexed part of the display text
+     */
+    static boolean canAnswer(String lowerKeyword) {
+        return lowerKeyword.length() >= GRAM_LENGTH
+                && lowerKeyword.indexOf('[') < 0 && lowerKeyword.indexOf(']') < 0;
+    }
+
+    /**
+     * Discards the index and indexes the tasks again in the given order.
+     *
+     * @param tasks the tasks in list order
+     */
+    void rebuild(List<Task> tasks) {
+        postings.clear();
+        slots.clear();
+        slotOf.clear();
+        deadSlotCount = 0;
+        for (Task task : tasks) {
+            add(task);
+        }
+    }
+
+    /**
+     * Indexes a task appended to the end of the list.
+     *
+     * @param task the added task
+     */
+    void add(Task task) {
+        int slot = slots.size();
+        slots.add(task);
+        slotOf.put(task, slot);
+
+        String text = task.toString();
+        for (int i = INDEXED_TEXT_START; i + GRAM_LENGTH <= text.length(); i++) {
+            appendPosting(gramKey(text, i), slot);
+        }
+    }
+
+    /**
+     * Removes a task from the index. Its slot is left empty until the next rebuild, which happens
+     * once more than half of the slots are empty.
+     *
+     * @param task the removed task
+     * @param remaining the tasks left in the list, in order
+     */
+    void remove(Task task, List<Task> remaining) {
+        Integer slot = slotOf.remove(task);
+        if (slot == null) {
+            return;
+        }
+        slots.set(slot, null);
+        deadSlotCount++;
+        if (deadSlotCount > slots.size() / 2) {
+            rebuild(remaining);
+        }
+    }
+
+    /**
+     * Finds the indexed tasks whose lowercase display text contains the keyword.
+     *
+     * @param lowerKeyword the lowercase keyword, which must satisfy {@link #canAnswer(String)}
+     * @return the matching tasks in list order
+     */
+    ArrayList<Task> find(String lowerKeyword) {
+        assert canAnswer(lowerKeyword) : "Keyword cannot be answered by the index";
+
+        int gramCount = lowerKeyword.length() - GRAM_LENGTH + 1;
+        Postings[] lists = new Postings[gramCount];
+        int smallest = 0;
+        for (int i = 0; i < gramCount; i++) {
+            lists[i] = postings.get(gramKey(lowerKeyword, i));
+            if (lists[i] == null) {
+                return new ArrayList<>();
+            }
+            if (lists[i].size < lists[smallest].size) {
+                smallest = i;
+            }
+        }
+
+        ArrayList<Task> matches = new ArrayList<>();
+        Postings candidates = lists[smallest];
+        for (int c = 0; c < candidates.size; c++) {
+            int slot = candidates.slots[c];
+            Task task = slots.get(slot);
+            if (task == null || !isInAllLists(slot, lists, smallest)) {
+                continue;
+            }
+            if (task.containsIgnoringCase(lowerKeyword)) {
+                matches.add(task);
+            }
+        }
+        return matches;
+    }
+
+    private static boolean isInAllLists(int slot, Postings[] lists, int skip) {
+        for (int i = 0; i < lists.length; i++) {
+            if (i != skip && Arrays.binarySearch(lists[i].slots, 0, lists[i].size, slot) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Appends a slot to a posting list. Slots are added in increasing order, so the list stays
+     * sorted; a slot already at the end (repeated trigram) is not added twice.
+     */
+    private void appendPosting(long key, int slot) {
+        Postings list = postings.computeIfAbsent(key, k -> new Postings());
+        if (list.size > 0 && list.slots[list.size - 1] == slot) {
+            return;
+        }
+        if (list.size == list.slots.length) {
+            list.slots = Arrays.copyOf(list.slots, list.size * 2);
+        }
+        list.slots[list.size++] = slot;
+    }
+
+    /**
+     * Packs three characters, lowercased, into a single map key.
+     */
+    private static long gramKey(String text, int start) {
+        return ((long) lower(text, start) << 32) | ((long) lower(text, start + 1) << 16) | lower(text, start + 2);
+    }
+
+    private static char lower(String text, int index) {
+        return Character.toLowerCase(text.charAt(index));
+    }
+
+    /**
+     * A growable, sorted list of slots containing one trigram.
+     */
+    private static class Postings {
+        private int[] slots = new int[INITIAL_POSTING_CAPACITY];
+        private int size;
+    }
+}
@@ -0,0 +1,166 @@
+package chip.task;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+/**
+ * Scans the slots of a {@link TaskOrder}, or its {@link TaskColumns}, on several threads at once.
+ *
+ * <p>The slots are split in half until each part is small enough, and the parts are scanned as
+ * fork-join tasks in the pool of the caller, or the common pool if the caller is not in one.
+ * The matches of the parts are joined left to right, so they come back in list order just as a
+ * scan on one thread would return them. Small lists are scanned on the calling thread, as
+ * starting the tasks would cost more than the scan.
+ *
+ * <p>The caller keeps the task list from changing while the scan runs, for example by holding
+ * its read lock; the threads of the pool only read.
+ */
+class ParallelScan {
+
+    // Constants
+    /** Fewest slots worth splitting between threads */
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+    private static final int LEAF_SLOTS = 1 << 13;
+    private static final int LEAF_WORDS = LEAF_SLOTS / Long.SIZE;
+    private static final int CANCEL_CHECK_MASK = 0xFFF;
+
+    private ParallelScan() {
+    }
+
+    /**
+     * Returns whether a scan of the given number of slots should be split between threads.
+     *
+     * @param slotCount the number of slots to scan
+     * @return true if the list is large enough and the pool has more than one thread
+     */
+    static boolean shouldSplit(int slotCount) {
+        return slotCount >= PARALLEL_THRESHOLD && currentPool().getParallelism() > 1;
+    }
+
+    /**
+     * Returns the tasks in the given slots that satisfy a predicate, in slot order.
+     *
+     * @param slots the slots, with null for an empty slot
+     * @param slotCount the number of slots in use
+     * @param predicate the condition to test each task against; called from several threads
+     * @param cancellation checked every few thousand slots by each thread
+     * @return the matching tasks in slot order
+     * @throws java.util.concurrent.CancellationException if cancellation was requested
+     */
+    static ArrayList<Task> findAll(Task[] slots, int slotCount, Predicate<Task> predicate,
+            Cancellation cancellation) {
+        if (!shouldSplit(slotCount)) {
+            return scan(slots, 0, slotCount, predicate, cancellation);
+        }
+        return currentPool().invoke(new FindTask(slots, 0, slotCount, predicate, cancellation));
+    }
+
+    /**
+     * Finds the slots whose task matches a filter, as {@link TaskColumns#findMatches} does for
+     * one range of words, splitting the words between threads.
+     *
+     * @param columns the columns to search
+     * @param slots the slots the columns mirror
+     * @param filter the filter
+     * @param matches receives a set bit for each matching slot; one word per 64 slots
+     */
+    static void findMatches(TaskColumns columns, Task[] slots, TaskFilter filter, long[] matches) {
+        if (!shouldSplit(matches.length * Long.SIZE)) {
+            columns.findMatches(filter, slots, 0, matches.length, matches);
+            return;
+        }
+        currentPool().invoke(new MatchTask(columns, slots, filter, 0, matches.length, matches));
+    }
+
+    private static ArrayList<Task> scan(Task[] slots, int from, int to, Predicate<Task> predicate,
+            Cancellation cancellation) {
+        ArrayList<Task> matching = new ArrayList<>();
+        for (int slot = from; slot < to; slot++) {
+            if (((slot - from + 1) & CANCEL_CHECK_MASK) == 0) {
+                cancellation.throwIfRequested();
+            }
+            Task task = slots[slot];
+            if (task != null && predicate.test(task)) {
+                matching.add(task);
+            }
+        }
+        return matching;
+    }
+
+    private static ForkJoinPool currentPool() {
+        return ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool() : ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Finds the matching tasks in a range of slots, splitting it in half until it is small.
+     */
+    private static class FindTask extends RecursiveTask<ArrayList<Task>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Task[] slots;
+        private final int from;
+        private final int to;
+        private final Predicate<Task> predicate;
+        private final Cancellation cancellation;
+
+        FindTask(Task[] slots, int from, int to, Predicate<Task> predicate, Cancellation cancellation) {
+            this.slots = slots;
+            this.from = from;
+            this.to = to;
+            this.predicate = predicate;
+            this.cancellation = cancellation;
+        }
+
+        @Override
+        protected ArrayList<Task> compute() {
+            if (to - from <= LEAF_SLOTS) {
+                return scan(slots, from, to, predicate, cancellation);
+            }
+            int middle = (from + to) >>> 1;
+            FindTask right = new FindTask(slots, middle, to, predicate, cancellation);
+            right.fork();
+            ArrayList<Task> matching = new FindTask(slots, from, middle, predicate, cancellation).compute();
+            matching.addAll(right.join());
+            return matching;
+        }
+    }
+
+    /**
+     * Searches a range of column words, splitting it in half until it is small. Each part writes
+     * only its own words of the result.
+     */
+    private static class MatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final TaskColumns columns;
+        private final Task[] slots;
+        private final TaskFilter filter;
+        private final int fromWord;
+        private final int toWord;
+        private final long[] matches;
+
+        MatchTask(TaskColumns columns, Task[] slots, TaskFilter filter, int fromWord, int toWord, long[] matches) {
+            this.columns = columns;
+            this.slots = slots;
+            this.filter = filter;
+            this.fromWord = fromWord;
+            this.toWord = toWord;
+            this.matches = matches;
+        }
+
+        @Override
+        protected void compute() {
+            if (toWord - fromWord <= LEAF_WORDS) {
+                columns.findMatches(filter, slots, fromWord, toWord, matches);
+                return;
+            }
+            int middle = (fromWord + toWord) >>> 1;
+            invokeAll(new MatchTask(columns, slots, filter, fromWord, middle, matches),
+                    new MatchTask(columns, slots, filter, middle, toWord, matches));
+        }
+    }
+}
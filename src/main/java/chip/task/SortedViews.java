@@ -0,0 +1,107 @@
+package chip.task;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Keeps the tasks of a list in other orders than the list's own, one balanced tree per
+ * {@link TaskSortKey}, so a sorted listing is a traversal instead of a sort.
+ *
+ * <p>A view is built the first time it is asked for and then updated in O(log n) on every add,
+ * delete and change of completion status. Views that were never asked for cost nothing.
+ */
+class SortedViews {
+    private final EnumMap<TaskSortKey, TreeSet<Task>> views = new EnumMap<>(TaskSortKey.class);
+
+    /**
+     * Returns whether the view for a key has been built.
+     *
+     * @param key the sort key
+     * @return true if the view is being kept up to date
+     */
+    boolean has(TaskSortKey key) {
+        return views.containsKey(key);
+    }
+
+    /**
+     * Builds the view for a key from the tasks of the list.
+     *
+     * @param key the sort key
+     * @param tasks every task of the list
+     */
+    void build(TaskSortKey key, List<Task> tasks) {
+        TreeSet<Task> view = new TreeSet<>(key.order());
+        view.addAll(tasks);
+        views.put(key, view);
+    }
+
+    /**
+     * Returns the view for a key, which must have been built. The view is live and not copied,
+     * so it may only be traversed while the list cannot change.
+     *
+     * @param key the sort key
+     * @return the tasks in that order
+     */
+    Collection<Task> get(TaskSortKey key) {
+        assert has(key) : "View should be built before it is read";
+        return Collections.unmodifiableSet(views.get(key));
+    }
+
+    /**
+     * Adds a task to every built view.
+     *
+     * @param task the task added to the list
+     */
+    void add(Task task) {
+        for (TreeSet<Task> view : views.values()) {
+            view.add(task);
+        }
+    }
+
+    /**
+     * Removes a task from every built view.
+     *
+     * @param task the task removed from the list
+     */
+    void remove(Task task) {
+        for (TreeSet<Task> view : views.values()) {
+            view.remove(task);
+        }
+    }
+
+    /**
+     * Takes a task out of the views ordered by completion status, before that status changes.
+     * The task must be put back with {@link #afterStatusChange(Task)}.
+     *
+     * @param task the task about to be marked or unmarked
+     */
+    void beforeStatusChange(Task task) {
+        TreeSet<Task> view = views.get(TaskSortKey.STATUS);
+        if (view != null) {
+            view.remove(task);
+        }
+    }
+
+    /**
+     * Puts a task back into the views ordered by completion status, after that status changed.
+     *
+     * @param task the task that was marked or unmarked
+     */
+    void afterStatusChange(Task task) {
+        TreeSet<Task> view = views.get(TaskSortKey.STATUS);
+        if (view != null) {
+            view.add(task);
+        }
+    }
+
+    /**
+     * Discards every view, so each is built again on its next use.
+     */
+    void clear() {
+        views.clear();
+    }
+
+}
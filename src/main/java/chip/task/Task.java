@@ -1,6 +1,6 @@
 package chip.task;
 
-import chip.ChipException;
+import java.time.format.DateTimeFormatter;
 
 /**
  * Represents a generic task with a description and completion status.
@@ -10,16 +10,32 @@ import chip.ChipException;
  * <ul>
  * <li>A description that describes what needs to be done</li>
  * <li>A completion status (done or not done)</li>
+ * <li>A stable id, assigned when the task is first added to a {@link TaskList}</li>
  * </ul>
  * 
  * <p>The task can be marked as completed or not completed, and provides
  * string representations for both file storage and user display.
  */
 public class Task {
-    /** The description of the task */
-    private String description;
-    /** Whether the task has been completed */
-    private boolean isDone;
+    /** Date/time format used in the data file and in user input */
+    protected static final DateTimeFormatter FILE_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HHmm");
+    /** Date/time format used when displaying tasks */
+    protected static final DateTimeFormatter DISPLAY_DATE_FORMAT = DateTimeFormatter.ofPattern("MMM dd yyyy, h:mma");
+    /** Time-only format used when displaying tasks */
+    protected static final DateTimeFormatter DISPLAY_TIME_FORMAT = DateTimeFormatter.ofPattern("h:mma");
+
+    /** Bit of {@link #idAndStatus} set when the task has been completed */
+    private static final int DONE_BIT = Integer.MIN_VALUE;
+
+    /** The description of the task, shared with other tasks that have the same one */
+    private final String description;
+    /**
+     * Stable id of the task (0 if it has not been assigned one yet) in the low 31 bits, and the
+     * completion status in the sign bit. A separate boolean would add 8 bytes to every task.
+     */
+    private int idAndStatus;
+    /** Cached display string, shared with equal ones, or null if it must be rebuilt */
+    private String displayString;
 
     /**
      * Constructs a new Task with the given description.
@@ -31,24 +47,62 @@ public class Task {
         assert description != null : "Task description cannot be null";
         assert !description.trim().isEmpty() : "Task description cannot be empty";
         
-        this.description = description;
-        this.isDone = false;
+        this.description = DescriptionTable.share(description);
     }
 
     /**
      * Marks this task as completed.
      */
     public void markAsDone() {
-        this.isDone = true;
-        assert this.isDone : "Task should be marked as done after calling markAsDone()";
+        idAndStatus |= DONE_BIT;
+        displayString = null;
+        assert isDone() : "Task should be marked as done after calling markAsDone()";
     }
 
     /**
      * Marks this task as not completed.
      */
     public void markAsNotDone() {
-        this.isDone = false;
-        assert !this.isDone : "Task should be marked as not done after calling markAsNotDone()";
+        idAndStatus &= ~DONE_BIT;
+        displayString = null;
+        assert !isDone() : "Task should be marked as not done after calling markAsNotDone()";
+    }
+
+    /**
+     * Returns the description of this task.
+     *
+     * @return the description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Returns the stable id of this task.
+     *
+     * @return the id, or 0 if the task has not been added to a task list yet
+     */
+    public int getId() {
+        return idAndStatus & ~DONE_BIT;
+    }
+
+    /**
+     * Sets the stable id of this task. Ids are assigned by {@link TaskList} and restored by storage.
+     *
+     * @param id the id, which must be positive
+     */
+    public void setId(int id) {
+        assert id > 0 : "Task id must be positive";
+        idAndStatus = (idAndStatus & DONE_BIT) | id;
+    }
+
+    /**
+     * Returns whether this task has been completed.
+     *
+     * @return true if the task is done
+     */
+    public boolean isDone() {
+        return idAndStatus < 0;
     }
 
     /**
@@ -57,7 +111,7 @@ public class Task {
      * @return "X" if task is done, " " (space) if not done
      */
     public String getStatusIcon() {
-        String icon = (isDone ? "X" : " ");
+        String icon = (isDone() ? "X" : " ");
         assert icon.equals("X") || icon.equals(" ") : "Status icon should be either 'X' or ' '";
         return icon;
     }
@@ -69,7 +123,7 @@ public class Task {
      * @return the file format string representation of this task
      */
     public String toFileString() {
-        String result = (isDone ? "1" : "0") + " | " + this.description;
+        String result = (isDone() ? "1" : "0") + " | " + this.description;
         assert result.contains(" | ") : "File string should contain separator ' | '";
         assert result.startsWith("0 | ") || result.startsWith("1 | ") : "File string should start with status";
         return result;
@@ -77,12 +131,68 @@ public class Task {
 
     /**
      * Returns the string representation for display to user.
-     * Format: "[status] description" where status is "X" for done, " " for not done.
+     * The string is built once and cached until the completion status changes. Equal display
+     * strings, such as those of recurring todos, share one copy through {@link DescriptionTable}.
      *
      * @return the display format string representation of this task
      */
     @Override
-    public String toString() {
+    public final String toString() {
+        String result = displayString;
+        if (result == null) {
+            result = DescriptionTable.share(buildDisplayString());
+            displayString = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether the display string contains a keyword, ignoring case.
+     * The comparison runs in place on the cached display string, so no lowercase copy is kept.
+     *
+     * @param lowerKeyword the keyword, in lowercase
+     * @return true if the display string contains the keyword
+     */
+    public boolean containsIgnoringCase(String lowerKeyword) {
+        return containsIgnoringCase(toString(), lowerKeyword);
+    }
+
+    /**
+     * Returns whether a text contains a keyword, ignoring case, without making a lowercase copy.
+     *
+     * @param text the text to search
+     * @param lowerKeyword the keyword, in lowercase
+     * @return true if the text contains the keyword
+     */
+    static boolean containsIgnoringCase(String text, String lowerKeyword) {
+        int length = lowerKeyword.length();
+        for (int i = 0; i + length <= text.length(); i++) {
+            if (text.regionMatches(true, i, lowerKeyword, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares the display strings of two tasks, ignoring case.
+     *
+     * @param other the task to compare with
+     * @return a negative number, zero or a positive number as this task sorts before, with or after
+     *     the other
+     */
+    public int compareIgnoringCase(Task other) {
+        return String.CASE_INSENSITIVE_ORDER.compare(toString(), other.toString());
+    }
+
+    /**
+     * Builds the string representation for display to user.
+     * Format: "[status] description" where status is "X" for done, " " for not done.
+     * Subclasses override this to add their type marker and dates.
+     *
+     * @return the display format string representation of this task
+     */
+    protected String buildDisplayString() {
         String result = "[" + getStatusIcon() + "] " + this.description;
         assert result.startsWith("[") && result.contains("]") : "Display string should have status in brackets";
         return result;
@@ -0,0 +1,211 @@
+package chip.task;
+
+import java.util.Arrays;
+
+/**
+ * The tasks of a {@link TaskOrder} kept a second time as columns of primitive values, one entry
+ * per slot, so filters can run as loops over arrays instead of visiting each task object.
+ *
+ * <p>The kind of task and the done flag are kept as bitmaps, one bit per slot in a {@code long[]}:
+ * one bitmap per kind of task and one of done flags. A filter on kind and status is then a few
+ * bitwise operations per 64 slots. The due minute of every deadline and start minute of every
+ * event are kept in a {@code long[]}, which is only read for the slots left by the bitmaps. A
+ * keyword is matched in place against the description of the task in each remaining slot; the
+ * descriptions are not copied, so the columns cost a few bits and one long per slot.
+ *
+ * <p>The task objects stay the source of truth and are what filters return; the columns only
+ * mirror them and are rebuilt whenever the slots are.
+ */
+class TaskColumns {
+
+    // Constants
+    static final byte TYPE_TODO = 0;
+    static final byte TYPE_DEADLINE = 1;
+    static final byte TYPE_EVENT = 2;
+    private static final int TYPE_COUNT = 3;
+    private static final int WORD_SHIFT = 6;
+
+    /** One bitmap per type code, with a bit set for each slot holding a task of that type */
+    private long[][] typeBits;
+    private long[] doneBits;
+    private long[] startMinutes;
+
+    /**
+     * Constructs columns holding the given slots.
+     *
+     * @param slots the slots of the task order, with null for an empty slot
+     * @param slotCount the number of slots in use
+     */
+    TaskColumns(Task[] slots, int slotCount) {
+        rebuild(slots, slotCount);
+    }
+
+    /**
+     * Discards the columns and fills them from the given slots.
+     *
+     * @param slots the slots of the task order, with null for an empty slot
+     * @param slotCount the number of slots in use
+     */
+    void rebuild(Task[] slots, int slotCount) {
+        int capacity = Math.max(1, slots.length);
+        typeBits = new long[TYPE_COUNT][wordCount(capacity)];
+        doneBits = new long[wordCount(capacity)];
+        startMinutes = new long[capacity];
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (slots[slot] != null) {
+                set(slot, slots[slot]);
+            }
+        }
+    }
+
+    /**
+     * Fills the columns of an empty slot from a task.
+     *
+     * @param slot the slot
+     * @param task the task in the slot
+     */
+    void set(int slot, Task task) {
+        if (slot >= startMinutes.length) {
+            grow(Math.max(slot + 1, startMinutes.length * 2));
+        }
+        setBit(typeBits[typeOf(task)], slot, true);
+        setBit(doneBits, slot, task.isDone());
+        startMinutes[slot] = minuteOf(task);
+    }
+
+    /**
+     * Marks a slot as empty.
+     *
+     * @param slot the slot
+     */
+    void clear(int slot) {
+        for (long[] bits : typeBits) {
+            setBit(bits, slot, false);
+        }
+        setBit(doneBits, slot, false);
+    }
+
+    /**
+     * Updates the done flag of a slot.
+     *
+     * @param slot the slot
+     * @param isDone the new completion status of its task
+     */
+    void setDone(int slot, boolean isDone) {
+        setBit(doneBits, slot, isDone);
+    }
+
+    /**
+     * Finds the slots whose task matches a filter, 64 slots per word of the result.
+     * Words outside the given range are left untouched, so separate ranges can be searched at once.
+     *
+     * @param filter the filter
+     * @param slots the slots of the task order, whose descriptions are read for a keyword
+     * @param fromWord the first word of slots to search, inclusive
+     * @param toWord the last word of slots to search, exclusive
+     * @param matches receives a set bit for each matching slot; must hold at least toWord words
+     */
+    void findMatches(TaskFilter filter, Task[] slots, int fromWord, int toWord, long[] matches) {
+        long[] todos = (filter.typeMask & TaskFilter.TODOS) != 0 ? typeBits[TYPE_TODO] : null;
+        long[] deadlines = (filter.typeMask & TaskFilter.DEADLINES) != 0 ? typeBits[TYPE_DEADLINE] : null;
+        long[] events = (filter.typeMask & TaskFilter.EVENTS) != 0 ? typeBits[TYPE_EVENT] : null;
+        boolean hasTimeRange = filter.hasTimeRange();
+        if (hasTimeRange) {
+            // Todos have no time
+            todos = null;
+        }
+        String keyword = filter.lowerKeyword;
+        int end = Math.min(toWord, doneBits.length);
+
+        for (int word = fromWord; word < end; word++) {
+            long bits = (todos == null ? 0 : todos[word])
+                    | (deadlines == null ? 0 : deadlines[word])
+                    | (events == null ? 0 : events[word]);
+            if (filter.status == TaskFilter.ONLY_DONE) {
+                bits &= doneBits[word];
+            } else if (filter.status == TaskFilter.ONLY_UNDONE) {
+                bits &= ~doneBits[word];
+            }
+            if (bits != 0 && (hasTimeRange || keyword != null)) {
+                bits = keepMatchingSlots(bits, word << WORD_SHIFT, filter, slots, hasTimeRange, keyword);
+            }
+            matches[word] = bits;
+        }
+    }
+
+    /**
+     * Tests the time and keyword of each slot whose bit is set, clearing the bits that fail.
+     */
+    private long keepMatchingSlots(long bits, int firstSlot, TaskFilter filter, Task[] slots, boolean hasTimeRange,
+            String keyword) {
+        long kept = bits;
+        for (long remaining = bits; remaining != 0; remaining &= remaining - 1) {
+            int slot = firstSlot + Long.numberOfTrailingZeros(remaining);
+            boolean isMatch = !hasTimeRange
+                    || startMinutes[slot] >= filter.fromMinute && startMinutes[slot] <= filter.toMinute;
+            if (isMatch && keyword != null) {
+                isMatch = Task.containsIgnoringCase(slots[slot].getDescription(), keyword);
+            }
+            if (!isMatch) {
+                kept &= ~Long.lowestOneBit(remaining);
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Returns the number of words that hold a bit for each of the given number of slots.
+     *
+     * @param slotCount the number of slots
+     * @return the number of words
+     */
+    static int wordCount(int slotCount) {
+        return (slotCount + Long.SIZE - 1) >>> WORD_SHIFT;
+    }
+
+    /**
+     * Returns the type code of a task.
+     *
+     * @param task the task
+     * @return one of the TYPE constants
+     */
+    static byte typeOf(Task task) {
+        if (task instanceof Deadline) {
+            return TYPE_DEADLINE;
+        } else if (task instanceof Event) {
+            return TYPE_EVENT;
+        }
+        return TYPE_TODO;
+    }
+
+    /**
+     * Returns the due minute of a deadline or the start minute of an event, or 0 for other tasks.
+     *
+     * @param task the task
+     * @return the minute since the epoch
+     */
+    static long minuteOf(Task task) {
+        if (task instanceof Deadline) {
+            return ((Deadline) task).getByMinute();
+        } else if (task instanceof Event) {
+            return ((Event) task).getFromMinute();
+        }
+        return 0;
+    }
+
+    private void grow(int capacity) {
+        for (int type = 0; type < TYPE_COUNT; type++) {
+            typeBits[type] = Arrays.copyOf(typeBits[type], wordCount(capacity));
+        }
+        doneBits = Arrays.copyOf(doneBits, wordCount(capacity));
+        startMinutes = Arrays.copyOf(startMinutes, capacity);
+    }
+
+    private static void setBit(long[] bits, int slot, boolean value) {
+        if (value) {
+            bits[slot >>> WORD_SHIFT] |= 1L << slot;
+        } else {
+            bits[slot >>> WORD_SHIFT] &= ~(1L << slot);
+        }
+    }
+}
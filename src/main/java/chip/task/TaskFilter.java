@@ -0,0 +1,170 @@
+package chip.task;
+
+import java.time.LocalDateTime;
+
+/**
+ * A condition on tasks made of simple criteria: the kind of task, whether it is done, when it is
+ * due and a word in its description. Every criterion left out matches all tasks.
+ *
+ * <p>Filters are immutable and built up from {@link #all()} or a kind of task, e.g.
+ * {@code TaskFilter.deadlines().undone().before(now)}. Because the criteria are plain values, a
+ * {@link TaskList} can test them against its columns of primitive values instead of visiting each
+ * task object, see {@link TaskList#filter(TaskFilter)}.
+ */
+public final class TaskFilter {
+
+    // Constants
+    static final int TODOS = 1 << TaskColumns.TYPE_TODO;
+    static final int DEADLINES = 1 << TaskColumns.TYPE_DEADLINE;
+    static final int EVENTS = 1 << TaskColumns.TYPE_EVENT;
+    static final int ANY_STATUS = 0;
+    static final int ONLY_DONE = 1;
+    static final int ONLY_UNDONE = 2;
+
+    private static final TaskFilter ALL =
+            new TaskFilter(TODOS | DEADLINES | EVENTS, ANY_STATUS, Long.MIN_VALUE, Long.MAX_VALUE, null);
+
+    /** Bit set of the task types that match, indexed by the type codes of {@link TaskColumns} */
+    final int typeMask;
+    final int status;
+    /** First and last minute of the time range, inclusive; todos have no time and never match one */
+    final long fromMinute;
+    final long toMinute;
+    /** Lowercase word the description must contain, or null */
+    final String lowerKeyword;
+
+    private TaskFilter(int typeMask, int status, long fromMinute, long toMinute, String lowerKeyword) {
+        this.typeMask = typeMask;
+        this.status = status;
+        this.fromMinute = fromMinute;
+        this.toMinute = toMinute;
+        this.lowerKeyword = lowerKeyword;
+    }
+
+    /**
+     * Returns a filter that matches every task.
+     *
+     * @return the filter
+     */
+    public static TaskFilter all() {
+        return ALL;
+    }
+
+    /**
+     * Returns a filter that matches todos.
+     *
+     * @return the filter
+     */
+    public static TaskFilter todos() {
+        return ALL.withTypes(TODOS);
+    }
+
+    /**
+     * Returns a filter that matches deadlines.
+     *
+     * @return the filter
+     */
+    public static TaskFilter deadlines() {
+        return ALL.withTypes(DEADLINES);
+    }
+
+    /**
+     * Returns a filter that matches events.
+     *
+     * @return the filter
+     */
+    public static TaskFilter events() {
+        return ALL.withTypes(EVENTS);
+    }
+
+    /**
+     * Returns this filter restricted to tasks that are done.
+     *
+     * @return the filter
+     */
+    public TaskFilter done() {
+        return new TaskFilter(typeMask, ONLY_DONE, fromMinute, toMinute, lowerKeyword);
+    }
+
+    /**
+     * Returns this filter restricted to tasks that are not done.
+     *
+     * @return the filter
+     */
+    public TaskFilter undone() {
+        return new TaskFilter(typeMask, ONLY_UNDONE, fromMinute, toMinute, lowerKeyword);
+    }
+
+    /**
+     * Returns this filter restricted to deadlines due and events starting before a time.
+     *
+     * @param time the time, exclusive
+     * @return the filter
+     */
+    public TaskFilter before(LocalDateTime time) {
+        assert time != null : "Time cannot be null";
+        return between(Long.MIN_VALUE, EpochMinutes.of(time) - 1);
+    }
+
+    /**
+     * Returns this filter restricted to deadlines due and events starting within a range.
+     *
+     * @param from the start of the range, inclusive
+     * @param to the end of the range, inclusive
+     * @return the filter
+     */
+    public TaskFilter between(LocalDateTime from, LocalDateTime to) {
+        assert from != null && to != null : "Range bounds cannot be null";
+        return between(EpochMinutes.of(from), EpochMinutes.of(to));
+    }
+
+    /**
+     * Returns this filter restricted to tasks whose description contains a keyword, ignoring case.
+     *
+     * @param keyword the keyword
+     * @return the filter
+     */
+    public TaskFilter containing(String keyword) {
+        assert keyword != null && !keyword.isEmpty() : "Keyword cannot be empty";
+        return new TaskFilter(typeMask, status, fromMinute, toMinute, keyword.toLowerCase());
+    }
+
+    /**
+     * Tests a single task against the filter. {@link TaskList#filter(TaskFilter)} gives the same
+     * answer for every task of a list without calling this.
+     *
+     * @param task the task to test
+     * @return true if the task matches
+     */
+    public boolean matches(Task task) {
+        byte type = TaskColumns.typeOf(task);
+        if ((typeMask & (1 << type)) == 0) {
+            return false;
+        }
+        if (status != ANY_STATUS && task.isDone() != (status == ONLY_DONE)) {
+            return false;
+        }
+        if (hasTimeRange()) {
+            long minute = TaskColumns.minuteOf(task);
+            if (type == TaskColumns.TYPE_TODO || minute < fromMinute || minute > toMinute) {
+                return false;
+            }
+        }
+        return lowerKeyword == null || Task.containsIgnoringCase(task.getDescription(), lowerKeyword);
+    }
+
+    /**
+     * Returns whether the filter limits the time of tasks, which leaves out all todos.
+     */
+    boolean hasTimeRange() {
+        return fromMinute != Long.MIN_VALUE || toMinute != Long.MAX_VALUE;
+    }
+
+    private TaskFilter withTypes(int types) {
+        return new TaskFilter(types, status, fromMinute, toMinute, lowerKeyword);
+    }
+
+    private TaskFilter between(long from, long to) {
+        return new TaskFilter(typeMask, status, Math.max(fromMinute, from), Math.min(toMinute, to), lowerKeyword);
+    }
+}
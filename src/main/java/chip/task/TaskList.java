@@ -1,20 +1,52 @@
 package chip.task;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Predicate;
 
 /**
  * Manages a list of tasks with operations to add, delete, and retrieve tasks.
- * Provides an abstraction over the underlying ArrayList for task management.
+ * Provides an abstraction over the underlying {@link TaskOrder} for task management.
+ *
+ * <p>Every task in the list has a stable id. Tasks without one get the next id when they are
+ * added, so ids grow monotonically and do not change when other tasks are deleted or the list is
+ * sorted. Tasks can be addressed by position or by id, both in O(log n) or better.
+ *
+ * <p>Keyword searches are answered by a {@link KeywordIndex} and date range queries by a
+ * {@link TimeIndex}. Each index is built on its first query and then kept up to date by every add,
+ * delete, mark and sort. Sorted views of the list, see
+ * {@link #forEachSortedBy(TaskSortKey, ObjIntConsumer)}, are kept the same way. Changes to tasks in
+ * the list should go through this class so that its indexes stay consistent.
+ *
+ * <p>The list is shared between threads through its read-write lock. A caller holds
+ * {@link #readLock()} around a sequence of queries and {@link #writeLock()} around a sequence that
+ * changes the list, so readers run concurrently and each writer sees a consistent list. Queries may
+ * build an index on first use; that is synchronized separately, as several readers can get there at
+ * once.
  */
 public class TaskList {
     
     // Constants
     private static final String TASK_INDENT = " ";
     private static final String TASK_SEPARATOR = ".";
+    private static final String TASK_ID_FORMAT = " (#%d)";
+    private static final int CANCEL_CHECK_MASK = 0xFFF;
     
-    private ArrayList<Task> tasks;
+    private final TaskOrder tasks = new TaskOrder();
+    private int nextId = 1;
+    private KeywordIndex keywordIndex;
+    private TimeIndex timeIndex;
+    private final SortedViews sortedViews = new SortedViews();
+    private final Object indexBuildLock = new Object();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
     /**
      * Constructs a TaskList with an existing list of tasks.
@@ -22,31 +54,56 @@ public class TaskList {
      * @param tasks the existing list of tasks to manage
      */
     public TaskList(ArrayList<Task> tasks) {
+        this(tasks, 1);
+    }
+
+    /**
+     * Constructs a TaskList with an existing list of tasks, giving new tasks ids starting no lower
+     * than {@code firstFreeId}. Storage keeps that id, so ids of tasks deleted before a restart are
+     * not reused.
+     *
+     * @param tasks the existing list of tasks to manage
+     * @param firstFreeId the lowest id a new task may get
+     */
+    public TaskList(ArrayList<Task> tasks, int firstFreeId) {
         assert tasks != null : "Tasks list cannot be null";
-        this.tasks = tasks;
-        assert this.tasks != null : "Tasks should be initialized after constructor";
+        nextId = Math.max(nextId, firstFreeId);
+        // Ids already stored take precedence, so tasks without one are numbered after all of them
+        for (Task task : tasks) {
+            nextId = Math.max(nextId, task.getId() + 1);
+        }
+        for (Task task : tasks) {
+            assignId(task);
+            this.tasks.append(task);
+        }
+        assert this.tasks.size() == tasks.size() : "All tasks should be added by the constructor";
     }
 
     /**
      * Constructs an empty TaskList.
      */
     public TaskList() {
-        this.tasks = new ArrayList<>();
-        assert this.tasks != null : "Tasks should be initialized after constructor";
         assert this.tasks.isEmpty() : "New TaskList should start empty";
     }
 
     /**
-     * Adds a task to the task list.
+     * Adds a task to the task list, assigning it an id if it has none.
      *
      * @param task the task to add
      */
     public void addTask(Task task) {
         assert task != null : "Cannot add null task to list";
         int initialSize = tasks.size();
-        tasks.add(task);
+        assignId(task);
+        tasks.append(task);
+        if (keywordIndex != null) {
+            keywordIndex.add(task);
+        }
+        if (timeIndex != null) {
+            timeIndex.add(task);
+        }
+        sortedViews.add(task);
         assert tasks.size() == initialSize + 1 : "Task list size should increase by 1 after adding";
-        assert tasks.contains(task) : "Task should be in the list after adding";
     }
 
     /**
@@ -61,7 +118,14 @@ public class TaskList {
         assert index < tasks.size() : "Index cannot be greater than or equal to list size";
         
         int initialSize = tasks.size();
-        Task removedTask = tasks.remove(index);
+        Task removedTask = tasks.removeAt(index);
+        if (keywordIndex != null) {
+            keywordIndex.remove(removedTask, tasks);
+        }
+        if (timeIndex != null) {
+            timeIndex.remove(removedTask);
+        }
+        sortedViews.remove(removedTask);
         
         assert removedTask != null : "Removed task should not be null";
         assert tasks.size() == initialSize - 1 : "Task list size should decrease by 1 after deletion";
@@ -86,6 +150,187 @@ public class TaskList {
         return task;
     }
 
+    /**
+     * Retrieves the task with the given id.
+     *
+     * @param id the id of the task
+     * @return the task, or null if no task in the list has the id
+     */
+    public Task getTaskById(int id) {
+        return tasks.getById(id);
+    }
+
+    /**
+     * Returns the current position of the task with the given id.
+     *
+     * @param id the id of the task
+     * @return the 0-based index of the task, or -1 if no task in the list has the id
+     */
+    public int indexOfId(int id) {
+        return tasks.positionOf(id);
+    }
+
+    /**
+     * Returns the current position of the task with the smallest id greater than the given id,
+     * which is the task added next after it. Unless the list has been sorted, that is the first
+     * task after where the task with the given id is or was. Takes O(log n) once the id index of
+     * the list has been built.
+     *
+     * @param id the id of a task, which may have been deleted
+     * @return the 0-based index of the task, or -1 if no task in the list has a greater id
+     */
+    public int indexOfNextId(int id) {
+        // The id index is built on first use, which several readers can reach at once
+        synchronized (indexBuildLock) {
+            return tasks.positionOfNextId(id);
+        }
+    }
+
+    /**
+     * Marks the task at the specified index as completed.
+     *
+     * @param index the index of the task to mark (0-based)
+     * @return the marked task
+     * @throws IndexOutOfBoundsException if index is out of range
+     */
+    public Task markTask(int index) {
+        Task task = getTask(index);
+        sortedViews.beforeStatusChange(task);
+        task.markAsDone();
+        sortedViews.afterStatusChange(task);
+        tasks.updateStatus(task);
+        if (timeIndex != null) {
+            timeIndex.updateStatus(task);
+        }
+        return task;
+    }
+
+    /**
+     * Marks the task at the specified index as not completed.
+     *
+     * @param index the index of the task to unmark (0-based)
+     * @return the unmarked task
+     * @throws IndexOutOfBoundsException if index is out of range
+     */
+    public Task unmarkTask(int index) {
+        Task task = getTask(index);
+        sortedViews.beforeStatusChange(task);
+        task.markAsNotDone();
+        sortedViews.afterStatusChange(task);
+        tasks.updateStatus(task);
+        if (timeIndex != null) {
+            timeIndex.updateStatus(task);
+        }
+        return task;
+    }
+
+    /**
+     * Removes the tasks at the given indexes in one pass. Each index refers to the position of a
+     * task before any of them is removed.
+     *
+     * @param indexes the 0-based indexes in ascending order, without duplicates
+     * @return the removed tasks in list order
+     * @throws IndexOutOfBoundsException if an index is out of range
+     */
+    public List<Task> deleteTasks(int[] indexes) {
+        assert indexes != null : "Indexes cannot be null";
+        int initialSize = tasks.size();
+        ArrayList<Task> removedTasks = tasks.removeAll(indexes);
+        for (Task task : removedTasks) {
+            if (keywordIndex != null) {
+                keywordIndex.remove(task, tasks);
+            }
+            if (timeIndex != null) {
+                timeIndex.remove(task);
+            }
+            sortedViews.remove(task);
+        }
+        assert tasks.size() == initialSize - indexes.length : "Every index should remove one task";
+        return removedTasks;
+    }
+
+    /**
+     * Marks the tasks at the given indexes as completed.
+     *
+     * @param indexes the 0-based indexes of the tasks
+     * @return the marked tasks
+     * @throws IndexOutOfBoundsException if an index is out of range
+     */
+    public List<Task> markTasks(int[] indexes) {
+        ArrayList<Task> marked = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            marked.add(markTask(index));
+        }
+        return marked;
+    }
+
+    /**
+     * Marks the tasks at the given indexes as not completed.
+     *
+     * @param indexes the 0-based indexes of the tasks
+     * @return the unmarked tasks
+     * @throws IndexOutOfBoundsException if an index is out of range
+     */
+    public List<Task> unmarkTasks(int[] indexes) {
+        ArrayList<Task> unmarked = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            unmarked.add(unmarkTask(index));
+        }
+        return unmarked;
+    }
+
+    /**
+     * Returns the indexes of the tasks that satisfy the predicate.
+     *
+     * @param predicate the condition to test each task against
+     * @return the 0-based indexes in ascending order
+     */
+    public int[] findIndexes(Predicate<Task> predicate) {
+        assert predicate != null : "Predicate cannot be null";
+        int[] indexes = new int[tasks.size()];
+        int count = 0;
+        int index = 0;
+        for (Task task : tasks) {
+            if (predicate.test(task)) {
+                indexes[count++] = index;
+            }
+            index++;
+        }
+        return Arrays.copyOf(indexes, count);
+    }
+
+    /**
+     * Returns the indexes of the tasks that match a filter. Unlike a predicate, a filter is tested
+     * against columns of primitive values, see {@link #filter(TaskFilter)}.
+     *
+     * @param filter the filter
+     * @return the 0-based indexes in ascending order
+     */
+    public int[] findIndexes(TaskFilter filter) {
+        assert filter != null : "Filter cannot be null";
+        ensureColumns();
+        return tasks.positionsMatching(filter);
+    }
+
+    /**
+     * Returns the tasks that match a filter, in list order.
+     *
+     * <p>The first filter keeps columns of the tasks: a bitmap per kind of task, a bitmap of done
+     * flags and the due or start minutes. Every change to the list keeps the columns up to date,
+     * and filters run as loops over them; only a keyword reads the descriptions of the tasks that
+     * are left.
+     * Large lists have their columns searched on several threads, and the matches are still
+     * returned in list order.
+     *
+     * @param filter the filter
+     * @return the matching tasks in list order
+     */
+    public ArrayList<Task> filter(TaskFilter filter) {
+        assert filter != null : "Filter cannot be null";
+        ensureColumns();
+        return tasks.filter(filter);
+    }
+
     /**
      * Returns the number of tasks in the list.
      *
@@ -98,13 +343,12 @@ public class TaskList {
     }
 
     /**
-     * Returns the underlying ArrayList of tasks.
+     * Returns a read-only view of the tasks in order.
      *
-     * @return the ArrayList containing all tasks
+     * @return the list of all tasks
      */
-    public ArrayList<Task> getTasks() {
-        assert this.tasks != null : "Tasks list should never be null";
-        return this.tasks;
+    public List<Task> getTasks() {
+        return Collections.unmodifiableList(tasks);
     }
 
     /**
@@ -114,18 +358,31 @@ public class TaskList {
      * @return ArrayList of tasks that contain the keyword (case-insensitive)
      */
     public ArrayList<Task> findTasks(String keyword) {
+        return findTasks(keyword, Cancellation.NONE);
+    }
+
+    /**
+     * Finds tasks that contain the specified keyword in their description, giving up if
+     * cancellation is requested while the tasks are scanned. Keywords the index cannot answer are
+     * found by scanning the tasks, split between threads for large lists.
+     *
+     * @param keyword the keyword to search for in task descriptions
+     * @param cancellation checked every few thousand tasks
+     * @return ArrayList of tasks that contain the keyword (case-insensitive)
+     * @throws java.util.concurrent.CancellationException if cancellation was requested
+     */
+    public ArrayList<Task> findTasks(String keyword, Cancellation cancellation) {
         assert keyword != null : "Keyword cannot be null";
+        assert cancellation != null : "Cancellation cannot be null";
         assert !keyword.trim().isEmpty() : "Keyword cannot be empty";
         
-        ArrayList<Task> matchingTasks = new ArrayList<>();
         String lowerKeyword = keyword.toLowerCase();
-        
-        for (Task task : tasks) {
-            assert task != null : "Task in list should not be null";
-            if (task.toString().toLowerCase().contains(lowerKeyword)) {
-                matchingTasks.add(task);
-            }
+        if (KeywordIndex.canAnswer(lowerKeyword)) {
+            return getKeywordIndex().find(lowerKeyword);
         }
+
+        ArrayList<Task> matchingTasks =
+                tasks.findAll(task -> task.containsIgnoringCase(lowerKeyword), cancellation);
         
         assert matchingTasks != null : "Matching tasks list should not be null";
         assert matchingTasks.size() <= tasks.size() : "Matching tasks cannot exceed total tasks";
@@ -133,6 +390,103 @@ public class TaskList {
         return matchingTasks;
     }
     
+    /**
+     * Finds deadlines due within the given range and events overlapping it.
+     *
+     * @param from the start of the range, inclusive
+     * @param to the end of the range, inclusive
+     * @return the matching tasks ordered by due or start time
+     */
+    public ArrayList<Task> findDue(LocalDateTime from, LocalDateTime to) {
+        assert from != null && to != null : "Range bounds cannot be null";
+        return getTimeIndex().findBetween(from, to);
+    }
+
+    /**
+     * Finds deadlines that are not done and were due before the given time.
+     *
+     * @param now the current time
+     * @return the overdue deadlines ordered by due time
+     */
+    public ArrayList<Task> findOverdue(LocalDateTime now) {
+        assert now != null : "Current time cannot be null";
+        return getTimeIndex().findOverdue(now);
+    }
+
+    /**
+     * Passes the tasks to the visitor in the order of a sort key, each with its 0-based position in
+     * the list, leaving the order of the list unchanged. The first call for a key builds its view in
+     * O(n log n); later calls traverse it in place, working out every position in one pass over the
+     * list. Call it under {@link #readLock()}, so the view does not change during the traversal.
+     *
+     * @param key the order to visit the tasks in
+     * @param visitor the callback receiving each task and its position
+     */
+    public void forEachSortedBy(TaskSortKey key, ObjIntConsumer<Task> visitor) {
+        assert key != null : "Sort key cannot be null";
+        Collection<Task> view;
+        synchronized (indexBuildLock) {
+            if (!sortedViews.has(key)) {
+                sortedViews.build(key, tasks);
+            }
+            view = sortedViews.get(key);
+        }
+        int[] positions = tasks.positionsBySlot();
+        for (Task task : view) {
+            visitor.accept(task, positions[tasks.slotOf(task.getId())]);
+        }
+    }
+
+    private void ensureColumns() {
+        synchronized (indexBuildLock) {
+            if (!tasks.hasColumns()) {
+                tasks.buildColumns();
+            }
+        }
+    }
+
+    private KeywordIndex getKeywordIndex() {
+        synchronized (indexBuildLock) {
+            if (keywordIndex == null) {
+                KeywordIndex index = new KeywordIndex();
+                index.rebuild(tasks);
+                keywordIndex = index;
+            }
+            return keywordIndex;
+        }
+    }
+
+    private TimeIndex getTimeIndex() {
+        synchronized (indexBuildLock) {
+            if (timeIndex == null) {
+                TimeIndex index = new TimeIndex();
+                index.rebuild(tasks);
+                timeIndex = index;
+            }
+            return timeIndex;
+        }
+    }
+
+    /**
+     * Returns the lock to hold while only reading the list. Any number of threads can hold it
+     * at once.
+     *
+     * @return the read lock of the list
+     */
+    public Lock readLock() {
+        return lock.readLock();
+    }
+
+    /**
+     * Returns the lock to hold while changing the list. It excludes every other reader and writer,
+     * and a thread holding it may also take the read lock.
+     *
+     * @return the write lock of the list
+     */
+    public Lock writeLock() {
+        return lock.writeLock();
+    }
+
     /**
      * Formats a task for display with its index number.
      *
@@ -141,7 +495,11 @@ public class TaskList {
      * @return formatted string representation of the task
      */
     public String formatTaskForDisplay(int index, Task task) {
-        return TASK_INDENT + (index + 1) + TASK_SEPARATOR + task;
+        String formatted = TASK_INDENT + (index + 1) + TASK_SEPARATOR + task;
+        if (task.getId() > 0) {
+            formatted += String.format(TASK_ID_FORMAT, task.getId());
+        }
+        return formatted;
     }
     
     /**
@@ -149,22 +507,104 @@ public class TaskList {
      * Uses case-insensitive comparison for better user experience.
      */
     public void sortByDescription() {
-        assert this.tasks != null : "Tasks list should not be null before sorting";
-        
-        Collections.sort(this.tasks, new Comparator<Task>() {
+        sortByDescription(Cancellation.NONE);
+    }
+
+    /**
+     * Sorts tasks by description in alphabetical order (A-Z), giving up if cancellation is
+     * requested while sorting. A cancelled sort leaves the list in its previous order.
+     *
+     * @param cancellation checked every few thousand comparisons
+     * @throws java.util.concurrent.CancellationException if cancellation was requested
+     */
+    public void sortByDescription(Cancellation cancellation) {
+        assert cancellation != null : "Cancellation cannot be null";
+        ArrayList<Task> sorted = new ArrayList<>(this.tasks);
+        Collections.sort(sorted, new Comparator<Task>() {
+            private int comparisons;
+
             @Override
             public int compare(Task task1, Task task2) {
                 assert task1 != null : "Task1 should not be null during comparison";
                 assert task2 != null : "Task2 should not be null during comparison";
+                if ((++comparisons & CANCEL_CHECK_MASK) == 0) {
+                    cancellation.throwIfRequested();
+                }
                 
-                // Extract description from task toString() method
-                String desc1 = task1.toString().toLowerCase();
-                String desc2 = task2.toString().toLowerCase();
-                
-                return desc1.compareTo(desc2);
+                // Cached display strings, so comparisons do not re-format dates
+                return task1.compareIgnoringCase(task2);
             }
         });
+        tasks.rebuild(sorted);
         
-        assert this.tasks != null : "Tasks list should not be null after sorting";
+        if (keywordIndex != null) {
+            keywordIndex.rebuild(tasks);
+        }
+        assert this.tasks.size() == sorted.size() : "Sorting should not change the number of tasks";
+    }
+
+    /**
+     * Records the current tasks, their completion status and the next id, so that later changes
+     * can be undone with {@link #restore(Checkpoint)}. Takes O(n) time and space.
+     *
+     * @return the checkpoint
+     */
+    public Checkpoint checkpoint() {
+        return new Checkpoint(new ArrayList<>(tasks), nextId);
+    }
+
+    /**
+     * Undoes every change made since the checkpoint was taken.
+     *
+     * @param checkpoint a checkpoint taken from this task list
+     */
+    public void restore(Checkpoint checkpoint) {
+        assert checkpoint != null : "Checkpoint cannot be null";
+        ArrayList<Task> saved = checkpoint.tasks;
+        for (int i = 0; i < saved.size(); i++) {
+            Task task = saved.get(i);
+            if (task.isDone() != checkpoint.doneFlags[i]) {
+                if (checkpoint.doneFlags[i]) {
+                    task.markAsDone();
+                } else {
+                    task.markAsNotDone();
+                }
+            }
+        }
+        tasks.rebuild(saved);
+        nextId = checkpoint.nextId;
+
+        // Indexes are rebuilt on their next query
+        keywordIndex = null;
+        timeIndex = null;
+        sortedViews.clear();
+    }
+
+    /**
+     * The state of a task list at one point in time.
+     */
+    public static class Checkpoint {
+        private final ArrayList<Task> tasks;
+        private final boolean[] doneFlags;
+        private final int nextId;
+
+        private Checkpoint(ArrayList<Task> tasks, int nextId) {
+            this.tasks = tasks;
+            this.doneFlags = new boolean[tasks.size()];
+            for (int i = 0; i < tasks.size(); i++) {
+                doneFlags[i] = tasks.get(i).isDone();
+            }
+            this.nextId = nextId;
+        }
+    }
+
+    /**
+     * Gives the task the next id unless it already has one that is not in use.
+     */
+    private void assignId(Task task) {
+        if (task.getId() == 0 || tasks.getById(task.getId()) != null) {
+            task.setId(nextId);
+        }
+        nextId = Math.max(nextId, task.getId() + 1);
     }
 }
\ No newline at end of file
@@ -0,0 +1,454 @@
+package chip.task;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * Keeps the tasks of a list in order, with positional access and removal in O(log n) and lookup
+ * by task id in O(1).
+ *
+ * <p>Tasks are appended to an array of slots and never move. Removing a task leaves an empty slot
+ * behind, and a Fenwick tree over the slots counts the tasks still present, so the slot holding
+ * the task at a given position is found by descending the tree instead of shifting the array.
+ * The slots are compacted once more than half of them are empty.
+ *
+ * <p>For {@link #positionOfNextId(int)}, the ids are also kept in ascending order with a second
+ * Fenwick tree counting the ones still in the list. That index is built on first use and extended
+ * by appends, which get increasing ids; reordering the slots or appending a smaller id drops it.
+ *
+ * <p>The class is itself a read-only {@link List} view of the tasks in order.
+ */
+class TaskOrder extends AbstractList<Task> {
+
+    // Constants
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Task[] slots = new Task[INITIAL_CAPACITY];
+    /** Fenwick tree over the slots, 1-based; each slot counts 1 if it holds a task */
+    private int[] tree = new int[INITIAL_CAPACITY + 1];
+    private int slotCount;
+    private int taskCount;
+    private final IdSlotMap slotById = new IdSlotMap();
+    /** Ids ever present since the id index was built, ascending; null until it is needed */
+    private int[] orderedIds;
+    /** Fenwick tree over orderedIds, 1-based; each id counts 1 while its task is in the list */
+    private int[] orderedTree;
+    private int orderedCount;
+    /** Columns of the tasks for filtering, or null until the first filter */
+    private TaskColumns columns;
+
+    /**
+     * Discards the current order and holds the given tasks in their order.
+     *
+     * @param tasks the tasks in list order
+     */
+    void rebuild(List<Task> tasks) {
+        Task[] newSlots = new Task[Math.max(INITIAL_CAPACITY, tasks.size())];
+        int count = 0;
+        for (Task task : tasks) {
+            newSlots[count++] = task;
+        }
+        slots = newSlots;
+        slotCount = count;
+        taskCount = count;
+
+        tree = new int[slots.length + 1];
+        fillTree(tree, slotCount);
+        slotById.clear();
+        for (int slot = 0; slot < slotCount; slot++) {
+            slotById.put(slots[slot].getId(), slot);
+        }
+        orderedIds = null;
+        if (columns != null) {
+            columns.rebuild(slots, slotCount);
+        }
+    }
+
+    /**
+     * Appends a task to the end of the order.
+     *
+     * @param task the task to append, whose id must not already be present
+     */
+    void append(Task task) {
+        assert slotById.get(task.getId()) < 0 : "Task id should not already be present";
+        if (slotCount == slots.length) {
+            slots = Arrays.copyOf(slots, slots.length * 2);
+            tree = Arrays.copyOf(tree, slots.length + 1);
+        }
+        slots[slotCount] = task;
+        slotCount++;
+
+        appendToTree(tree, slotCount);
+        taskCount++;
+        slotById.put(task.getId(), slotCount - 1);
+        if (columns != null) {
+            columns.set(slotCount - 1, task);
+        }
+
+        if (orderedIds == null) {
+            return;
+        }
+        if (orderedCount > 0 && task.getId() < orderedIds[orderedCount - 1]) {
+            orderedIds = null;
+            return;
+        }
+        if (orderedCount == orderedIds.length) {
+            orderedIds = Arrays.copyOf(orderedIds, orderedIds.length * 2);
+            orderedTree = Arrays.copyOf(orderedTree, orderedIds.length + 1);
+        }
+        orderedIds[orderedCount] = task.getId();
+        orderedCount++;
+        appendToTree(orderedTree, orderedCount);
+    }
+
+    /**
+     * Updates the columns after the completion status of a task changed.
+     *
+     * @param task the task in the order whose status changed
+     */
+    void updateStatus(Task task) {
+        if (columns != null) {
+            int slot = slotById.get(task.getId());
+            assert slot >= 0 && slots[slot] == task : "Task should be in the order";
+            columns.setDone(slot, task.isDone());
+        }
+    }
+
+    /**
+     * Returns whether the columns used by {@link #filter(TaskFilter)} have been built.
+     *
+     * @return true if the columns are being kept up to date
+     */
+    boolean hasColumns() {
+        return columns != null;
+    }
+
+    /**
+     * Builds the columns used by {@link #filter(TaskFilter)}. From then on every change to the
+     * order keeps them up to date.
+     */
+    void buildColumns() {
+        columns = new TaskColumns(slots, slotCount);
+    }
+
+    /**
+     * Returns the tasks that match a filter, in order, by scanning the columns.
+     *
+     * @param filter the filter
+     * @return the matching tasks in order
+     */
+    ArrayList<Task> filter(TaskFilter filter) {
+        BitSet matches = matchingSlots(filter);
+        ArrayList<Task> matching = new ArrayList<>(matches.cardinality());
+        for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+            matching.add(slots[slot]);
+        }
+        return matching;
+    }
+
+    /**
+     * Returns the tasks that satisfy a predicate, in order. Large orders are scanned on several
+     * threads, see {@link ParallelScan}.
+     *
+     * @param predicate the condition to test each task against; may be called from several threads
+     * @param cancellation checked every few thousand tasks
+     * @return the matching tasks in order
+     * @throws java.util.concurrent.CancellationException if cancellation was requested
+     */
+    ArrayList<Task> findAll(Predicate<Task> predicate, Cancellation cancellation) {
+        return ParallelScan.findAll(slots, slotCount, predicate, cancellation);
+    }
+
+    /**
+     * Returns the positions of the tasks that match a filter, by scanning the columns.
+     *
+     * @param filter the filter
+     * @return the 0-based positions in ascending order
+     */
+    int[] positionsMatching(TaskFilter filter) {
+        BitSet matches = matchingSlots(filter);
+        int[] positions = new int[matches.cardinality()];
+        int count = 0;
+        int position = 0;
+        int slot = 0;
+        for (int match = matches.nextSetBit(0); match >= 0; match = matches.nextSetBit(match + 1)) {
+            // Count the tasks in the slots skipped since the last match
+            for (; slot < match; slot++) {
+                if (slots[slot] != null) {
+                    position++;
+                }
+            }
+            positions[count++] = position;
+        }
+        return positions;
+    }
+
+    private BitSet matchingSlots(TaskFilter filter) {
+        assert columns != null : "Columns should be built before filtering";
+        long[] matches = new long[TaskColumns.wordCount(slotCount)];
+        ParallelScan.findMatches(columns, slots, filter, matches);
+        return BitSet.valueOf(matches);
+    }
+
+    /**
+     * Removes and returns the task at the given position.
+     *
+     * @param position the 0-based position
+     * @return the removed task
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    Task removeAt(int position) {
+        Task task = clearSlot(slotAt(position));
+        compactIfSparse();
+        return task;
+    }
+
+    /**
+     * Removes the tasks at the given positions, all counted before any removal, and compacts the
+     * slots at most once.
+     *
+     * @param positions the 0-based positions in ascending order, without duplicates
+     * @return the removed tasks in list order
+     * @throws IndexOutOfBoundsException if a position is out of range
+     */
+    ArrayList<Task> removeAll(int[] positions) {
+        // Resolve every slot first, since clearing a slot shifts the positions after it
+        int[] removedSlots = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            assert i == 0 || positions[i] > positions[i - 1] : "Positions should be ascending and distinct";
+            removedSlots[i] = slotAt(positions[i]);
+        }
+        ArrayList<Task> removed = new ArrayList<>(positions.length);
+        for (int slot : removedSlots) {
+            removed.add(clearSlot(slot));
+        }
+        compactIfSparse();
+        return removed;
+    }
+
+    /**
+     * Returns the task with the given id.
+     *
+     * @param id the task id
+     * @return the task, or null if no task in the list has the id
+     */
+    Task getById(int id) {
+        int slot = slotById.get(id);
+        return slot < 0 ? null : slots[slot];
+    }
+
+    /**
+     * Returns the current position of the task with the given id.
+     *
+     * @param id the task id
+     * @return the 0-based position, or -1 if no task in the list has the id
+     */
+    int positionOf(int id) {
+        int slot = slotById.get(id);
+        return slot < 0 ? -1 : prefixCount(tree, slot + 1) - 1;
+    }
+
+    /**
+     * Returns the current position of every task, indexed by the slot holding it, so positions
+     * of many tasks can be looked up with {@link #slotOf(int)} after a single pass.
+     *
+     * @return the 0-based positions by slot, with -1 for empty slots
+     */
+    int[] positionsBySlot() {
+        int[] positions = new int[slotCount];
+        int position = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            positions[slot] = slots[slot] == null ? -1 : position++;
+        }
+        return positions;
+    }
+
+    /**
+     * Returns the slot holding the task with the given id.
+     *
+     * @param id the task id
+     * @return the slot, or -1 if no task in the list has the id
+     */
+    int slotOf(int id) {
+        return slotById.get(id);
+    }
+
+    /**
+     * Returns the current position of the task with the smallest id greater than the given id,
+     * in O(log n) once the id index is built.
+     *
+     * @param id the task id
+     * @return the 0-based position, or -1 if no task in the list has a greater id
+     */
+    int positionOfNextId(int id) {
+        if (orderedIds == null) {
+            buildIdIndex();
+        }
+        // Find the first greater id, then the first of the ids from there on that is still present
+        int low = 0;
+        int high = orderedCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (orderedIds[middle] <= id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int presentBefore = prefixCount(orderedTree, low);
+        if (presentBefore == taskCount) {
+            return -1;
+        }
+        return positionOf(orderedIds[indexOfRank(orderedTree, orderedCount, presentBefore)]);
+    }
+
+    private void buildIdIndex() {
+        int[] ids = new int[Math.max(INITIAL_CAPACITY, taskCount)];
+        int count = 0;
+        for (Task task : this) {
+            ids[count++] = task.getId();
+        }
+        Arrays.sort(ids, 0, count);
+        orderedIds = ids;
+        orderedCount = count;
+        orderedTree = new int[ids.length + 1];
+        fillTree(orderedTree, count);
+    }
+
+    @Override
+    public Task get(int position) {
+        return slots[slotAt(position)];
+    }
+
+    @Override
+    public int size() {
+        return taskCount;
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        return new Iterator<Task>() {
+            private int slot = nextOccupied(0);
+
+            @Override
+            public boolean hasNext() {
+                return slot < slotCount;
+            }
+
+            @Override
+            public Task next() {
+                if (slot >= slotCount) {
+                    throw new NoSuchElementException();
+                }
+                Task task = slots[slot];
+                slot = nextOccupied(slot + 1);
+                return task;
+            }
+        };
+    }
+
+    private Task clearSlot(int slot) {
+        Task task = slots[slot];
+        slots[slot] = null;
+        removeFromTree(tree, slotCount, slot);
+        taskCount--;
+        slotById.remove(task.getId());
+        if (columns != null) {
+            columns.clear(slot);
+        }
+        if (orderedIds != null) {
+            int index = Arrays.binarySearch(orderedIds, 0, orderedCount, task.getId());
+            removeFromTree(orderedTree, orderedCount, index);
+        }
+        return task;
+    }
+
+    private void compactIfSparse() {
+        if (slotCount - taskCount > slotCount / 2 && slotCount > INITIAL_CAPACITY) {
+            rebuild(this);
+        }
+    }
+
+    private int nextOccupied(int slot) {
+        while (slot < slotCount && slots[slot] == null) {
+            slot++;
+        }
+        return slot;
+    }
+
+    /**
+     * Finds the slot holding the task at the given position.
+     */
+    private int slotAt(int position) {
+        if (position < 0 || position >= taskCount) {
+            throw new IndexOutOfBoundsException("Position " + position + " out of range for size " + taskCount);
+        }
+        return indexOfRank(tree, slotCount, position);
+    }
+
+    /**
+     * Fills a Fenwick tree in O(n) with a count of 1 for each of the first {@code size} entries, by
+     * pushing each node's count up to its parent.
+     */
+    private static void fillTree(int[] tree, int size) {
+        for (int i = 1; i <= size; i++) {
+            tree[i]++;
+            int parent = i + Integer.lowestOneBit(i);
+            if (parent <= size) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    /**
+     * Sets up the node of a new last entry, counted 1, in a Fenwick tree that now has {@code size}
+     * entries.
+     */
+    private static void appendToTree(int[] tree, int size) {
+        // A new node covers the entries (i - lowbit(i), i], all but the last of which already exist
+        tree[size] = 1 + prefixCount(tree, size - 1) - prefixCount(tree, size - Integer.lowestOneBit(size));
+    }
+
+    /**
+     * Stops counting the 0-based entry {@code index} in a Fenwick tree of {@code size} entries.
+     */
+    private static void removeFromTree(int[] tree, int size, int index) {
+        for (int node = index + 1; node <= size; node += Integer.lowestOneBit(node)) {
+            tree[node]--;
+        }
+    }
+
+    /**
+     * Returns the number of counted entries among the first {@code count} of a Fenwick tree.
+     */
+    private static int prefixCount(int[] tree, int count) {
+        int sum = 0;
+        for (int node = count; node > 0; node -= Integer.lowestOneBit(node)) {
+            sum += tree[node];
+        }
+        return sum;
+    }
+
+    /**
+     * Finds the 0-based entry holding the counted item of the given 0-based rank by descending a
+     * Fenwick tree of {@code size} entries.
+     */
+    private static int indexOfRank(int[] tree, int size, int rank) {
+        int node = 0;
+        int remaining = rank + 1;
+        for (int step = Integer.highestOneBit(size); step > 0; step >>= 1) {
+            // Only nodes up to size have been filled in
+            if (node + step <= size && tree[node + step] < remaining) {
+                node += step;
+                remaining -= tree[node];
+            }
+        }
+        return node;
+    }
+}
@@ -0,0 +1,62 @@
+package chip.task;
+
+import java.util.Comparator;
+import java.util.TreeMap;
+
+/**
+ * The orders in which a task list can be viewed without changing the order of the list itself.
+ * Each order ends with the task id, so no two tasks of a list compare as equal.
+ */
+public enum TaskSortKey {
+    /** Description, ignoring case */
+    DESCRIPTION(Comparator.comparing(Task::getDescription, String.CASE_INSENSITIVE_ORDER)),
+    /** Due time of deadlines and start time of events, earliest first; todos come last */
+    DEADLINE(Comparator.comparingLong(TaskSortKey::minuteOf)
+            .thenComparing(Task::getDescription, String.CASE_INSENSITIVE_ORDER)),
+    /** Tasks not done first, then by description */
+    STATUS(Comparator.comparing(Task::isDone)
+            .thenComparing(Task::getDescription, String.CASE_INSENSITIVE_ORDER));
+
+    /** Every key by its name, compared without regard to case */
+    private static final TreeMap<String, TaskSortKey> BY_NAME = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        for (TaskSortKey key : values()) {
+            BY_NAME.put(key.name(), key);
+        }
+    }
+
+    private final Comparator<Task> order;
+
+    TaskSortKey(Comparator<Task> order) {
+        this.order = order.thenComparingInt(Task::getId);
+    }
+
+    /**
+     * Looks up a sort key by name, ignoring case.
+     *
+     * @param name the name typed by the user
+     * @return the sort key, or null if there is none with that name
+     */
+    public static TaskSortKey fromName(String name) {
+        return BY_NAME.get(name);
+    }
+
+    /**
+     * Returns the order of this key.
+     *
+     * @return a comparator that orders tasks of one list by this key
+     */
+    Comparator<Task> order() {
+        return order;
+    }
+
+    private static long minuteOf(Task task) {
+        if (task instanceof Deadline) {
+            return ((Deadline) task).getByMinute();
+        } else if (task instanceof Event) {
+            return ((Event) task).getFromMinute();
+        }
+        return Long.MAX_VALUE;
+    }
+}
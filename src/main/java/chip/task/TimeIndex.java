@@ -0,0 +1,149 @@
+package chip.task;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Time-ordered index over the dates of deadlines and events, used for range queries.
+ *
+ * <p>Deadlines are kept in a map ordered by their due time, with a second map holding only the
+ * deadlines that are not done yet. Events are kept in an {@link EventTree}, so an overlap query
+ * only visits the events that can overlap the range. Both are keyed on the epoch minutes the tasks
+ * store, so indexing a task never builds a date object.
+ */
+class TimeIndex {
+
+    private final TreeMap<Long, List<Task>> deadlines = new TreeMap<>();
+    private final TreeMap<Long, List<Task>> pendingDeadlines = new TreeMap<>();
+    private final EventTree events = new EventTree();
+
+    /**
+     * Discards the index and indexes the tasks again.
+     *
+     * @param tasks the tasks to index
+     */
+    void rebuild(List<Task> tasks) {
+        deadlines.clear();
+        pendingDeadlines.clear();
+        events.clear();
+        for (Task task : tasks) {
+            add(task);
+        }
+    }
+
+    /**
+     * Indexes a task. Todos have no dates and are ignored.
+     *
+     * @param task the task to index
+     */
+    void add(Task task) {
+        if (task instanceof Deadline) {
+            long by = ((Deadline) task).getByMinute();
+            put(deadlines, by, task);
+            if (!task.isDone()) {
+                put(pendingDeadlines, by, task);
+            }
+        } else if (task instanceof Event) {
+            events.add((Event) task);
+        }
+    }
+
+    /**
+     * Removes a task from the index.
+     *
+     * @param task the task to remove
+     */
+    void remove(Task task) {
+        if (task instanceof Deadline) {
+            long by = ((Deadline) task).getByMinute();
+            take(deadlines, by, task);
+            take(pendingDeadlines, by, task);
+        } else if (task instanceof Event) {
+            events.remove((Event) task);
+        }
+    }
+
+    /**
+     * Updates the index after the completion status of a task changed.
+     *
+     * @param task the task whose status changed
+     */
+    void updateStatus(Task task) {
+        if (!(task instanceof Deadline)) {
+            return;
+        }
+        long by = ((Deadline) task).getByMinute();
+        take(pendingDeadlines, by, task);
+        if (!task.isDone()) {
+            put(pendingDeadlines, by, task);
+        }
+    }
+
+    /**
+     * Finds deadlines due within the range and events overlapping it, ordered by time.
+     *
+     * @param from the start of the range, inclusive
+     * @param to the end of the range, inclusive
+     * @return the matching tasks ordered by due or start time
+     */
+    ArrayList<Task> findBetween(LocalDateTime from, LocalDateTime to) {
+        long fromMinute = EpochMinutes.ceilingOf(from);
+        long toMinute = EpochMinutes.of(to);
+        if (fromMinute > toMinute) {
+            return new ArrayList<>();
+        }
+        List<Event> overlapping = events.findOverlapping(fromMinute, toMinute);
+        ArrayList<Task> result = new ArrayList<>();
+        int next = 0;
+        for (Map.Entry<Long, List<Task>> entry : deadlines.subMap(fromMinute, true, toMinute, true).entrySet()) {
+            long dueMinute = entry.getKey();
+            while (next < overlapping.size() && overlapping.get(next).getFromMinute() < dueMinute) {
+                result.add(overlapping.get(next++));
+            }
+            result.addAll(entry.getValue());
+        }
+        result.addAll(overlapping.subList(next, overlapping.size()));
+        return result;
+    }
+
+    /**
+     * Finds deadlines that are not done and were due before the given time, ordered by due time.
+     *
+     * @param now the current time
+     * @return the overdue deadlines
+     */
+    ArrayList<Task> findOverdue(LocalDateTime now) {
+        return flatten(pendingDeadlines.headMap(EpochMinutes.ceilingOf(now), false));
+    }
+
+    private static ArrayList<Task> flatten(Map<Long, List<Task>> map) {
+        ArrayList<Task> result = new ArrayList<>();
+        for (List<Task> tasks : map.values()) {
+            result.addAll(tasks);
+        }
+        return result;
+    }
+
+    private static void put(TreeMap<Long, List<Task>> map, long key, Task task) {
+        map.computeIfAbsent(key, k -> new ArrayList<>()).add(task);
+    }
+
+    private static void take(TreeMap<Long, List<Task>> map, long key, Task task) {
+        List<Task> tasks = map.get(key);
+        if (tasks == null) {
+            return;
+        }
+        for (int i = 0; i < tasks.size(); i++) {
+            if (tasks.get(i) == task) {
+                tasks.remove(i);
+                break;
+            }
+        }
+        if (tasks.isEmpty()) {
+            map.remove(key);
+        }
+    }
+}
@@ -33,7 +33,7 @@ public class Todo extends Task {
      * @return the display format string representation
      */
     @Override
-    public String toString() {
-        return "[T]" + super.toString();
+    protected String buildDisplayString() {
+        return "[T]" + super.buildDisplayString();
     }
 }
\ No newline at end of file
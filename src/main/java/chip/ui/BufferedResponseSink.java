@@ -0,0 +1,60 @@
+package chip.ui;
+
+/**
+ * Collects a response in a reusable buffer, one line per message, with errors prefixed by "OOPS!!! ".
+ *
+ * <p>A sink is meant to be kept and reused, e.g. one per thread, so answering a command allocates
+ * little more than the response string itself. The buffer is dropped instead of kept once it has
+ * grown past {@link #MAX_RETAINED_CAPACITY}, so one very long response does not pin its memory.
+ * A sink is not thread-safe.
+ */
+public class BufferedResponseSink implements ResponseSink {
+
+    // Constants
+    private static final String ERROR_PREFIX = "OOPS!!! ";
+    private static final char NEWLINE = '\n';
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private StringBuilder buffer = new StringBuilder();
+
+    @Override
+    public void showMessage(String message) {
+        buffer.append(message).append(NEWLINE);
+    }
+
+    @Override
+    public void showError(String message) {
+        buffer.append(ERROR_PREFIX).append(message).append(NEWLINE);
+    }
+
+    /**
+     * Returns the response collected so far without leading or trailing whitespace, and empties
+     * the sink.
+     *
+     * @return the response
+     */
+    public String takeResponse() {
+        int start = 0;
+        int end = buffer.length();
+        while (start < end && buffer.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && buffer.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        String response = buffer.substring(start, end);
+        reset();
+        return response;
+    }
+
+    /**
+     * Discards anything collected so far.
+     */
+    public void reset() {
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            buffer = new StringBuilder();
+        } else {
+            buffer.setLength(0);
+        }
+    }
+}
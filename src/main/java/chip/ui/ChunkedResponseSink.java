@@ -0,0 +1,75 @@
+package chip.ui;
+
+import java.util.function.Consumer;
+
+/**
+ * Passes a response on in chunks while it is being written, instead of collecting all of it.
+ *
+ * <p>Lines are gathered until they reach {@link #CHUNK_SIZE} characters and then handed to the
+ * consumer as one chunk, so the memory held for a response is bounded by the chunk size however
+ * long the response is. Each chunk holds whole lines, each ending in a newline. Leading whitespace
+ * of the response is dropped, as {@link BufferedResponseSink#takeResponse()} does.
+ * A sink is not thread-safe.
+ */
+public class ChunkedResponseSink implements ResponseSink {
+
+    // Constants
+    private static final String ERROR_PREFIX = "OOPS!!! ";
+    private static final char NEWLINE = '\n';
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private final StringBuilder buffer = new StringBuilder();
+    private final Consumer<String> consumer;
+    private boolean isStarted;
+
+    /**
+     * Constructs a ChunkedResponseSink.
+     *
+     * @param consumer receives the chunks in order
+     */
+    public ChunkedResponseSink(Consumer<String> consumer) {
+        assert consumer != null : "Consumer cannot be null";
+        this.consumer = consumer;
+    }
+
+    @Override
+    public void showMessage(String message) {
+        append(message, false);
+    }
+
+    @Override
+    public void showError(String message) {
+        append(message, true);
+    }
+
+    private void append(String message, boolean isError) {
+        if (!isStarted) {
+            int start = 0;
+            while (start < message.length() && message.charAt(start) <= ' ') {
+                start++;
+            }
+            if (start == message.length() && !isError) {
+                return;
+            }
+            message = message.substring(start);
+            isStarted = true;
+        }
+        if (isError) {
+            buffer.append(ERROR_PREFIX);
+        }
+        buffer.append(message).append(NEWLINE);
+        if (buffer.length() >= CHUNK_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Hands anything gathered so far to the consumer. Called once the command has finished.
+     */
+    public void flush() {
+        if (buffer.length() > 0) {
+            consumer.accept(buffer.toString());
+            buffer.setLength(0);
+        }
+    }
+}
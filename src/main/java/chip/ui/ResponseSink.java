@@ -0,0 +1,22 @@
+package chip.ui;
+
+/**
+ * Receives the response to a command. Commands write their output here instead of to the console,
+ * so the same command can answer the console, the GUI or a network client.
+ */
+public interface ResponseSink {
+
+    /**
+     * Adds a regular message line to the response.
+     *
+     * @param message the message to add
+     */
+    void showMessage(String message);
+
+    /**
+     * Adds an error message to the response.
+     *
+     * @param message the error message to add
+     */
+    void showError(String message);
+}
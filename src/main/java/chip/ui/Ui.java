@@ -5,17 +5,12 @@ import java.util.Scanner;
 /**
  * Handles all user interface operations for the Chip application.
  * Manages input reading and output display to provide a consistent user experience.
+ * Standard input is only wrapped once a command is first read, so a Ui used only for output never
+ * touches it.
  */
-public class Ui {
+public class Ui implements ResponseSink {
     private Scanner scanner;
 
-    /**
-     * Constructs a new Ui instance and initializes the input scanner.
-     */
-    public Ui() {
-        this.scanner = new Scanner(System.in);
-    }
-
     /**
      * Displays the welcome message when the application starts.
      */
@@ -33,6 +28,9 @@ public class Ui {
      * @return the command string entered by the user
      */
     public String readCommand() {
+        if (scanner == null) {
+            scanner = new Scanner(System.in);
+        }
         return scanner.nextLine();
     }
 
@@ -48,6 +46,7 @@ public class Ui {
      *
      * @param message the error message to display
      */
+    @Override
     public void showError(String message) {
         System.out.println("OOPS!!! " + message);
         System.out.println(" Type 'help' to see available commands.");
@@ -58,6 +57,7 @@ public class Ui {
      *
      * @param message the message to display
      */
+    @Override
     public void showMessage(String message) {
         System.out.println(message);
     }
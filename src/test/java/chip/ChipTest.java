@@ -2,6 +2,7 @@ package chip;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
 
 import chip.task.Task;
@@ -9,7 +10,17 @@ import chip.task.Todo;
 import chip.task.Deadline;
 import chip.task.Event;
 import chip.task.TaskList;
+import chip.task.Cancellation;
+import chip.task.TaskFilter;
 import chip.ChipException;
+import chip.ui.BufferedResponseSink;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Test class for the Chip task management application.
@@ -19,6 +30,9 @@ public class ChipTest {
 
     private TaskList taskList;
 
+    @TempDir
+    Path tempDir;
+
     @BeforeEach
     public void setUp() {
         taskList = new TaskList();
@@ -46,6 +60,33 @@ public class ChipTest {
         assertTrue(todo.getStatusIcon().equals(" "));
     }
 
+    @Test
+    public void testCachedDisplayStringFollowsStatus() throws ChipException {
+        Deadline deadline = new Deadline("Submit Report", "2024-12-25 1800");
+        assertEquals("[D][ ] Submit Report (by: Dec 25 2024, 6:00PM)", deadline.toString());
+        assertTrue(deadline.containsIgnoringCase("[d][ ] submit report"));
+        deadline.markAsDone();
+        assertEquals("[D][X] Submit Report (by: Dec 25 2024, 6:00PM)", deadline.toString());
+        assertTrue(deadline.containsIgnoringCase("[d][x] submit report"));
+        assertFalse(deadline.containsIgnoringCase("[d][ ]"));
+        deadline.markAsNotDone();
+        assertEquals("[D][ ] Submit Report (by: Dec 25 2024, 6:00PM)", deadline.toString());
+    }
+
+    @Test
+    public void testIdAndStatusAreIndependent() {
+        Todo todo = new Todo("Read a book");
+        todo.markAsDone();
+        todo.setId(Integer.MAX_VALUE);
+        assertTrue(todo.isDone());
+        assertEquals(Integer.MAX_VALUE, todo.getId());
+        todo.markAsNotDone();
+        assertFalse(todo.isDone());
+        assertEquals(Integer.MAX_VALUE, todo.getId());
+        todo.setId(7);
+        assertEquals(7, todo.getId());
+    }
+
     @Test
     public void testDeadlineCreation() throws ChipException {
         Deadline deadline = new Deadline("Submit report", "2024-12-31 1800");
@@ -98,6 +139,82 @@ public class ChipTest {
         assertTrue(foundTasks.contains(todo3));
     }
 
+    @Test
+    public void testTaskListFindTasksAfterChanges() throws ChipException {
+        taskList.addTask(new Todo("Read book"));
+        assertEquals(1, taskList.findTasks("book").size());
+
+        Todo todo = new Todo("Book flight");
+        taskList.addTask(todo);
+        taskList.addTask(new Deadline("Return library book", "2024-12-31 1800"));
+        taskList.deleteTask(0);
+        taskList.markTask(0);
+
+        var foundTasks = taskList.findTasks("BOOK");
+        assertEquals(2, foundTasks.size());
+        assertEquals(todo, foundTasks.get(0));
+        assertEquals(1, taskList.findTasks("dec 31").size());
+        assertEquals(1, taskList.findTasks("[x]").size());
+        assertTrue(taskList.findTasks("missing").isEmpty());
+    }
+
+    @Test
+    public void testTaskIdsStayStable() {
+        Todo first = new Todo("Zebra task");
+        Todo second = new Todo("Apple task");
+        Todo third = new Todo("Mango task");
+        taskList.addTask(first);
+        taskList.addTask(second);
+        taskList.addTask(third);
+        assertEquals(1, first.getId());
+        assertEquals(3, third.getId());
+
+        taskList.deleteTask(0);
+        taskList.sortByDescription();
+        assertEquals(2, taskList.getTask(0).getId());
+        assertEquals(third, taskList.getTaskById(3));
+        assertEquals(1, taskList.indexOfId(3));
+        assertEquals(-1, taskList.indexOfId(1));
+        assertNull(taskList.getTaskById(1));
+
+        Todo fourth = new Todo("Kiwi task");
+        taskList.addTask(fourth);
+        assertEquals(4, fourth.getId());
+    }
+
+    @Test
+    public void testIndexOfNextIdSkipsDeletedTasks() {
+        for (int i = 0; i < 100; i++) {
+            taskList.addTask(new Todo("Task " + (i % 7)));
+        }
+        assertEquals(0, taskList.indexOfNextId(0));
+        int[] range = new int[40];
+        for (int i = 0; i < range.length; i++) {
+            range[i] = 10 + i;
+        }
+        taskList.deleteTasks(range);
+        assertEquals(10, taskList.indexOfNextId(11));
+        assertEquals(51, taskList.getTask(10).getId());
+        assertEquals(-1, taskList.indexOfNextId(100));
+
+        // Check against every task after a sort, a compaction and more appends
+        taskList.sortByDescription();
+        for (int i = 0; i < 40; i++) {
+            taskList.deleteTask(0);
+        }
+        taskList.addTask(new Todo("Late task"));
+        for (int id = 0; id <= 102; id++) {
+            int expected = -1;
+            for (int i = 0; i < taskList.size(); i++) {
+                int candidate = taskList.getTask(i).getId();
+                if (candidate > id && (expected < 0 || candidate < taskList.getTask(expected).getId())) {
+                    expected = i;
+                }
+            }
+            assertEquals(expected, taskList.indexOfNextId(id));
+        }
+    }
+
     @Test
     public void testTaskListSortByDescription() {
         Todo todo1 = new Todo("Zebra task");
@@ -141,4 +258,164 @@ public class ChipTest {
         assertTrue(formatted.contains("1."));
         assertTrue(formatted.contains("Test task"));
     }
+
+    @Test
+    public void testBufferedResponseSinkIsReusable() {
+        BufferedResponseSink sink = new BufferedResponseSink();
+        sink.showMessage(" Got it.");
+        sink.showError("Something went wrong.");
+        assertEquals("Got it.\nOOPS!!! Something went wrong.", sink.takeResponse());
+
+        sink.showMessage("Next response");
+        assertEquals("Next response", sink.takeResponse());
+        assertEquals("", sink.takeResponse());
+    }
+
+    @Test
+    public void testCancelledSortAndFindLeaveTasksUnchanged() {
+        for (int i = 0; i < 5000; i++) {
+            taskList.addTask(new Todo("task " + (5000 - i)));
+        }
+        Cancellation cancellation = new Cancellation();
+        cancellation.request();
+
+        assertThrows(CancellationException.class, () -> taskList.sortByDescription(cancellation));
+        assertThrows(CancellationException.class, () -> taskList.findTasks("1", cancellation));
+        assertEquals("task 5000", taskList.getTask(0).getDescription());
+        assertEquals(5000, taskList.size());
+    }
+
+    @Test
+    public void testStreamedResponseComesInLineChunks() {
+        Chip chip = new Chip(tempDir.resolve("chip.txt").toString());
+        List<String> todos = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            todos.add("todo stream task " + i);
+        }
+        chip.getResponses(todos);
+
+        List<String> chunks = new ArrayList<>();
+        chip.streamResponse("list", chunks::add);
+        assertTrue(chunks.size() > 1);
+        StringBuilder streamed = new StringBuilder();
+        for (String chunk : chunks) {
+            assertTrue(chunk.endsWith("\n"));
+            streamed.append(chunk);
+        }
+        assertEquals(chip.getResponse("list"), streamed.toString().trim());
+
+        chunks.clear();
+        chip.streamResponse("blah", chunks::add);
+        assertEquals(List.of("OOPS!!! I don't understand that command. Type 'help' to see available commands.\n"),
+                chunks);
+        chip.close();
+    }
+
+    @Test
+    public void testCompactTasksKeepTheirData() {
+        Todo first = new Todo(new String("standup"));
+        Todo second = new Todo(new String("standup"));
+        assertSame(first.getDescription(), second.getDescription());
+
+        LocalDateTime by = LocalDateTime.of(2024, 12, 31, 18, 0);
+        Deadline deadline = new Deadline("submit report", by);
+        assertEquals(by, deadline.getBy());
+        assertEquals(by, new Deadline("submit report", deadline.getByMinute()).getBy());
+    }
+
+    @Test
+    public void testTaskIdsSurviveManyDeletes() {
+        for (int i = 0; i < 1000; i++) {
+            taskList.addTask(new Todo("task " + i));
+        }
+        for (int index = taskList.size() - 1; index >= 0; index -= 3) {
+            taskList.deleteTask(index);
+        }
+        for (int id = 1; id <= 1000; id++) {
+            Task task = taskList.getTaskById(id);
+            boolean isDeleted = (1000 - id) % 3 == 0;
+            assertEquals(isDeleted, task == null);
+            if (!isDeleted) {
+                assertEquals(task, taskList.getTask(taskList.indexOfId(id)));
+            }
+        }
+        assertNull(taskList.getTaskById(0));
+        assertEquals(-1, taskList.indexOfId(-5));
+    }
+
+    @Test
+    public void testFilterMatchesEveryTaskCheck() {
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        Random random = new Random(7);
+        List<TaskFilter> filters = List.of(TaskFilter.all(), TaskFilter.all().done(),
+                TaskFilter.deadlines().undone().before(base.plusDays(30)),
+                TaskFilter.events().between(base.plusDays(10), base.plusDays(20)),
+                TaskFilter.todos().containing("PAY"), TaskFilter.all().containing("rent").undone());
+        TaskList.Checkpoint checkpoint = null;
+        for (int round = 0; round < 300; round++) {
+            int choice = random.nextInt(10);
+            String description = (random.nextBoolean() ? "pay rent " : "standup ") + round;
+            LocalDateTime time = base.plusMinutes(random.nextInt(60 * 24 * 60));
+            if (round % 50 == 9) {
+                checkpoint = taskList.checkpoint();
+            } else if (round % 50 == 39) {
+                taskList.restore(checkpoint);
+            } else if (choice < 3) {
+                taskList.addTask(new Todo(description));
+            } else if (choice < 5) {
+                taskList.addTask(new Deadline(description, time));
+            } else if (choice < 6) {
+                taskList.addTask(new Event(description, time, time.plusHours(2)));
+            } else if (choice < 8 && taskList.size() > 0) {
+                taskList.markTask(random.nextInt(taskList.size()));
+            } else if (choice < 9 && taskList.size() > 0) {
+                taskList.deleteTask(random.nextInt(taskList.size()));
+            } else {
+                taskList.sortByDescription();
+            }
+            for (TaskFilter filter : filters) {
+                List<Task> expected = new ArrayList<>();
+                List<Integer> expectedIndexes = new ArrayList<>();
+                for (int i = 0; i < taskList.size(); i++) {
+                    if (filter.matches(taskList.getTask(i))) {
+                        expected.add(taskList.getTask(i));
+                        expectedIndexes.add(i);
+                    }
+                }
+                assertEquals(expected, taskList.filter(filter));
+                assertArrayEquals(expectedIndexes.stream().mapToInt(Integer::intValue).toArray(),
+                        taskList.findIndexes(filter));
+            }
+        }
+    }
+
+    @Test
+    public void testParallelScansKeepListOrder() throws Exception {
+        for (int i = 0; i < 100_000; i++) {
+            taskList.addTask(i % 3 == 0 ? new Todo("xy " + i) : new Todo("task " + i));
+        }
+        for (int i = 0; i < 100_000; i += 7) {
+            taskList.markTask(i);
+        }
+        taskList.deleteTask(5);
+        TaskFilter filter = TaskFilter.todos().done();
+        List<Task> expectedFound = new ArrayList<>();
+        List<Task> expectedFiltered = new ArrayList<>();
+        for (Task task : taskList.getTasks()) {
+            if (task.getDescription().contains("xy")) {
+                expectedFound.add(task);
+            }
+            if (filter.matches(task)) {
+                expectedFiltered.add(task);
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(expectedFound, pool.submit(() -> taskList.findTasks("xy")).get());
+            assertEquals(expectedFiltered, pool.submit(() -> taskList.filter(filter)).get());
+        } finally {
+            pool.shutdown();
+        }
+    }
 }
@@ -2,14 +2,20 @@ package chip.command;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
 
 import chip.ChipException;
 import chip.task.TaskList;
 import chip.storage.Storage;
+import chip.ui.BufferedResponseSink;
 import chip.ui.Ui;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
 /**
  * Test class for the Parser command handling functionality.
@@ -22,6 +28,9 @@ public class ParserTest {
     private Storage storage;
     private ByteArrayOutputStream outputStream;
 
+    @TempDir
+    Path tempDir;
+
     @BeforeEach
     public void setUp() {
         taskList = new TaskList();
@@ -120,6 +129,133 @@ public class ParserTest {
         assertEquals("Apple task", taskList.getTask(0).toString().substring(6).trim());
     }
 
+    @Test
+    public void testOnCommand() throws ChipException {
+        Parser.parse("deadline Submit report /by 2024-12-25 2359", taskList, ui, storage);
+        Parser.parse("event Party /from 2024-12-24 2200 /to 2024-12-25 0100", taskList, ui, storage);
+        Parser.parse("deadline Pay rent /by 2024-12-26 0900", taskList, ui, storage);
+        outputStream.reset();
+        Parser.parse("on 2024-12-25", taskList, ui, storage);
+        String output = outputStream.toString();
+        assertTrue(output.contains("Here are the tasks on 2024-12-25:"));
+        assertTrue(output.indexOf("Party") < output.indexOf("Submit report"));
+        assertFalse(output.contains("Pay rent"));
+    }
+
+    @Test
+    public void testOnCommandWithLongAndDeletedEvents() throws ChipException {
+        Parser.parse("event Sabbatical /from 2020-01-01 0000 /to 2029-12-31 2359", taskList, ui, storage);
+        for (int day = 10; day <= 20; day++) {
+            Parser.parse("event Talk " + day + " /from 2024-12-" + day + " 0900 /to 2024-12-" + day + " 1000",
+                    taskList, ui, storage);
+        }
+        Parser.parse("delete 7", taskList, ui, storage);
+        outputStream.reset();
+        Parser.parse("on 2024-12-15", taskList, ui, storage);
+        String output = outputStream.toString();
+        assertTrue(output.contains("Sabbatical"));
+        assertFalse(output.contains("Talk 15"));
+        assertFalse(output.contains("Talk 14"));
+
+        outputStream.reset();
+        Parser.parse("on 2024-12-16", taskList, ui, storage);
+        output = outputStream.toString();
+        assertTrue(output.indexOf("Sabbatical") < output.indexOf("Talk 16"));
+        assertFalse(output.contains("Talk 17"));
+    }
+
+    @Test
+    public void testOverdueCommand() throws ChipException {
+        Parser.parse("deadline Old report /by 2000-01-01 1200", taskList, ui, storage);
+        Parser.parse("deadline Old essay /by 2000-01-02 1200", taskList, ui, storage);
+        Parser.parse("mark 2", taskList, ui, storage);
+        outputStream.reset();
+        Parser.parse("overdue", taskList, ui, storage);
+        String output = outputStream.toString();
+        assertTrue(output.contains("Old report"));
+        assertFalse(output.contains("Old essay"));
+    }
+
+    @Test
+    public void testDueCommandWithInvalidDates() {
+        assertThrows(ChipException.class, () -> {
+            Parser.parse("due 2024-12-31", taskList, ui, storage);
+        });
+        assertThrows(ChipException.class, () -> {
+            Parser.parse("due 2024-12-31 2024-01-01", taskList, ui, storage);
+        });
+        assertThrows(ChipException.class, () -> {
+            Parser.parse("due 31/12/2024 2025-01-01", taskList, ui, storage);
+        });
+    }
+
+    @Test
+    public void testCommandsById() throws ChipException {
+        Parser.parse("todo Task 1", taskList, ui, storage);
+        Parser.parse("todo Task 2", taskList, ui, storage);
+        Parser.parse("todo Task 3", taskList, ui, storage);
+        Parser.parse("delete #1", taskList, ui, storage);
+        Parser.parse("mark #3", taskList, ui, storage);
+        assertEquals(2, taskList.size());
+        assertEquals("[T][X] Task 3", taskList.getTask(1).toString());
+        assertThrows(ChipException.class, () -> {
+            Parser.parse("mark #1", taskList, ui, storage);
+        });
+        assertThrows(ChipException.class, () -> {
+            Parser.parse("unmark #x", taskList, ui, storage);
+        });
+        assertThrows(ChipException.class, () -> {
+            Parser.parse("delete 3", taskList, ui, storage);
+        });
+    }
+
+    @Test
+    public void testCommandsOnSeveralTasks() throws ChipException {
+        for (int i = 1; i <= 6; i++) {
+            Parser.parse("todo Task " + i, taskList, ui, storage);
+        }
+        Parser.parse("mark 2-4,6", taskList, ui, storage);
+        assertTrue(outputStream.toString().contains("Nice! I've marked 4 tasks as done."));
+        Parser.parse("unmark 3,3-4", taskList, ui, storage);
+        assertEquals("[T][ ] Task 4", taskList.getTask(3).toString());
+
+        Parser.parse("delete done", taskList, ui, storage);
+        assertTrue(outputStream.toString().contains("Noted. I've removed 2 tasks."));
+        assertEquals(4, taskList.size());
+        assertEquals("[T][ ] Task 5", taskList.getTask(3).toString());
+
+        assertThrows(ChipException.class, () -> {
+            Parser.parse("mark 3-1", taskList, ui, storage);
+        });
+        assertThrows(ChipException.class, () -> {
+            Parser.parse("delete 1-9", taskList, ui, storage);
+        });
+        assertEquals(4, taskList.size());
+    }
+
+    @Test
+    public void testBatchCommand() throws ChipException, IOException {
+        Path script = tempDir.resolve("script.txt");
+        Files.write(script, List.of("# setup", "todo Task 1", "", "mark 5", "todo Task 2"));
+        Parser.parse("batch " + script, taskList, ui, storage);
+        String output = outputStream.toString();
+        assertTrue(output.contains("Ran 3 commands from " + script + ": 2 succeeded, 1 failed."));
+        assertTrue(output.contains("Line 4: OOPS!!! There is no task numbered 5."));
+        assertEquals(2, taskList.size());
+    }
+
+    @Test
+    public void testAtomicBatchRollsBack() throws ChipException, IOException {
+        Parser.parse("todo Task 1", taskList, ui, storage);
+        Path script = tempDir.resolve("script.txt");
+        Files.write(script, List.of("mark 1", "delete 1", "todo Task 2", "unmark 9"));
+        Parser.parse("batch --atomic " + script, taskList, ui, storage);
+        assertTrue(outputStream.toString().contains("Line 4: OOPS!!!"));
+        assertEquals(1, taskList.size());
+        assertEquals("[T][ ] Task 1", taskList.getTask(0).toString());
+        assertEquals(1, taskList.getTask(0).getId());
+    }
+
     @Test
     public void testInvalidCommand() {
         assertThrows(ChipException.class, () -> {
@@ -183,4 +319,92 @@ public class ParserTest {
             Parser.parse("event /from 2024-12-25 1400 /to 2024-12-25 1600", taskList, ui, storage);
         });
     }
+
+    @Test
+    public void testEventEndingBeforeItStarts() throws ChipException {
+        ChipException e = assertThrows(ChipException.class, () -> {
+            Parser.parse("event e /from 2024-01-05 1000 /to 2024-01-01 1000", taskList, ui, storage);
+        });
+        assertEquals("An event cannot end before it starts.", e.getMessage());
+        assertEquals(0, taskList.size());
+
+        // Such events may still come from an older data file
+        taskList.addTask(new chip.task.Event("e", "2024-01-05 1000", "2024-01-01 1000"));
+        outputStream.reset();
+        Parser.parse("due 2024-01-02 2024-01-03", taskList, ui, storage);
+        Parser.parse("on 2024-01-02", taskList, ui, storage);
+        assertFalse(outputStream.toString().contains("[E]"));
+    }
+
+    @Test
+    public void testListSortedByKeepsListOrder() throws ChipException {
+        Parser.parse("todo write report", taskList, ui, storage);
+        Parser.parse("deadline Buy milk /by 2024-12-31 1800", taskList, ui, storage);
+        Parser.parse("todo clean room", taskList, ui, storage);
+        Parser.parse("mark 3", taskList, ui, storage);
+
+        BufferedResponseSink sink = new BufferedResponseSink();
+        Parser.parse("list sorted by description", taskList, sink, storage);
+        String[] lines = sink.takeResponse().split("\n");
+        assertTrue(lines[1].trim().startsWith("2.") && lines[1].contains("Buy milk"));
+        assertTrue(lines[2].trim().startsWith("3.") && lines[2].contains("clean room"));
+        assertTrue(lines[3].trim().startsWith("1.") && lines[3].contains("write report"));
+
+        Parser.parse("unmark 3", taskList, ui, storage);
+        Parser.parse("todo another chore", taskList, ui, storage);
+        Parser.parse("list sorted by STATUS", taskList, sink, storage);
+        lines = sink.takeResponse().split("\n");
+        assertTrue(lines[1].contains("another chore"));
+        assertTrue(lines[4].contains("write report"));
+        assertTrue(taskList.getTask(0).toString().contains("write report"));
+
+        Parser.parse("mark 1", taskList, ui, storage);
+        Parser.parse("list sorted by status", taskList, sink, storage);
+        lines = sink.takeResponse().split("\n");
+        assertTrue(lines[4].contains("write report"));
+        assertThrows(ChipException.class, () -> Parser.parse("list sorted by colour", taskList, ui, storage));
+    }
+
+    @Test
+    public void testListPagesAndCursor() throws ChipException {
+        for (int i = 1; i <= 25; i++) {
+            taskList.addTask(new chip.task.Todo("task " + i));
+        }
+        BufferedResponseSink sink = new BufferedResponseSink();
+        Parser.parse("list --page 2 --size 10", taskList, sink, storage);
+        String[] lines = sink.takeResponse().split("\n");
+        assertEquals("Here are tasks 11 to 20 of the 25 in your list:", lines[0]);
+        assertEquals(12, lines.length);
+        assertTrue(lines[1].contains("task 11"));
+        assertEquals("Type 'list --after #20 --size 10' to see more.", lines[11]);
+
+        // The cursor is a task id, so deleting earlier tasks does not shift the next page
+        Parser.parse("delete 1-5", taskList, sink, storage);
+        sink.reset();
+        Parser.parse("list --after #20 --size 10", taskList, sink, storage);
+        lines = sink.takeResponse().split("\n");
+        assertEquals(6, lines.length);
+        assertTrue(lines[1].contains("task 21"));
+        assertTrue(lines[5].contains("task 25"));
+
+        // Deleting the cursor task itself resumes at the task added after it
+        Parser.parse("delete #21", taskList, sink, storage);
+        Parser.parse("delete #20", taskList, sink, storage);
+        sink.reset();
+        Parser.parse("list --after #20 --size 2", taskList, sink, storage);
+        lines = sink.takeResponse().split("\n");
+        assertTrue(lines[1].contains("task 22"));
+        assertTrue(lines[2].contains("task 23"));
+        Parser.parse("delete #25", taskList, sink, storage);
+        sink.reset();
+        Parser.parse("list --after #25", taskList, sink, storage);
+        assertEquals("There are no more tasks in your list.", sink.takeResponse());
+
+        Parser.parse("list --page 9", taskList, sink, storage);
+        assertEquals("There are no more tasks in your list.", sink.takeResponse());
+        assertThrows(ChipException.class, () -> Parser.parse("list --page 0", taskList, ui, storage));
+        assertThrows(ChipException.class, () -> Parser.parse("list --size 5000 --page 1", taskList, ui, storage));
+        assertThrows(ChipException.class, () -> Parser.parse("list --page 1 --after #21", taskList, ui, storage));
+        assertThrows(ChipException.class, () -> Parser.parse("list --page", taskList, ui, storage));
+    }
 }
@@ -0,0 +1,144 @@
+package chip.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import chip.Chip;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for the line-protocol server.
+ * Tests the response framing and concurrent clients sharing one task list.
+ */
+public class ChipServerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ChipServer server;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new ChipServer(new Chip(tempDir.resolve("chip.txt").toString()), 0);
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testResponsesAreFramed() throws IOException {
+        try (Client client = new Client(server.getPort())) {
+            List<String> response = client.send("todo read book");
+            assertEquals("Got it. I've added this task:", response.get(0));
+            assertEquals(3, response.size());
+            assertEquals(List.of("Bye. Hope to see you again soon!"), client.send("bye"));
+        }
+    }
+
+    @Test
+    public void testConcurrentClientsShareTasks() throws Exception {
+        int clientCount = 8;
+        int commandsPerClient = 50;
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int c = 0; c < clientCount; c++) {
+            int clientNumber = c;
+            Thread thread = new Thread(() -> {
+                try (Client client = new Client(server.getPort())) {
+                    for (int i = 0; i < commandsPerClient; i++) {
+                        client.send("todo task " + clientNumber + "-" + i);
+                        client.send("find task");
+                    }
+                } catch (IOException | RuntimeException e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(failures.isEmpty());
+        try (Client client = new Client(server.getPort())) {
+            List<String> list = client.send("list");
+            assertEquals(clientCount * commandsPerClient + 1, list.size());
+        }
+    }
+
+    @Test
+    public void testStalledClientDoesNotBlockOthers() throws Exception {
+        Chip chip = new Chip(tempDir.resolve("big.txt").toString());
+        List<String> commands = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            commands.add("todo a task with a fairly long description to fill the socket " + i);
+        }
+        chip.getResponses(commands);
+        ChipServer bigServer = new ChipServer(chip, 0);
+        bigServer.setWriteTimeout(500);
+        bigServer.start();
+        try (Socket stalled = new Socket(InetAddress.getLoopbackAddress(), bigServer.getPort());
+                Client client = new Client(bigServer.getPort())) {
+            // Ask for the whole list and never read it
+            stalled.getOutputStream().write("list\n".getBytes(StandardCharsets.UTF_8));
+            stalled.getOutputStream().flush();
+            Thread.sleep(200);
+
+            long start = System.nanoTime();
+            assertEquals("Got it. I've added this task:", client.send("todo after the stall").get(0));
+            assertEquals(1, client.send("find after the stall").size() - 1);
+            assertTrue(System.nanoTime() - start < 10_000_000_000L);
+        } finally {
+            bigServer.close();
+        }
+    }
+
+    /**
+     * A minimal client that sends one command and reads the framed response.
+     */
+    private static class Client implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader input;
+        private final PrintWriter output;
+
+        Client(int port) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            output = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+        }
+
+        List<String> send(String command) throws IOException {
+            output.print(command + "\n");
+            output.flush();
+            List<String> lines = new ArrayList<>();
+            String line;
+            while (!(line = input.readLine()).equals(".")) {
+                lines.add(line.startsWith("..") ? line.substring(1) : line);
+            }
+            return lines;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package chip.server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import chip.Chip;
+import chip.ChipException;
+import chip.storage.Storage;
+import java.nio.file.Path;
+
+/**
+ * Test class for the per-user registry.
+ * Tests eviction with flushing, pinning and sharded data files.
+ */
+public class TenantRegistryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testEvictedTenantIsFlushedAndReloaded() throws ChipException {
+        TenantRegistry registry = new TenantRegistry(tempDir, 2);
+        for (String user : new String[] {"alice", "bob", "carol"}) {
+            Chip chip = registry.acquire(user);
+            chip.getResponse("todo task of " + user);
+            registry.release(user);
+        }
+        assertEquals(2, registry.size());
+        assertEquals(1, new Storage(registry.dataFileOf("alice").toString(), true).load().size());
+
+        Chip alice = registry.acquire("alice");
+        assertTrue(alice.getResponse("list").contains("task of alice"));
+        assertFalse(alice.getResponse("list").contains("task of bob"));
+        registry.release("alice");
+        registry.close();
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void testPinnedTenantIsNotEvicted() throws ChipException {
+        TenantRegistry registry = new TenantRegistry(tempDir, 1);
+        Chip alice = registry.acquire("alice");
+        registry.acquire("bob");
+        registry.release("bob");
+        assertEquals(1, registry.size());
+        assertSame(alice, registry.acquire("alice"));
+        registry.release("alice");
+        registry.release("alice");
+        registry.close();
+    }
+
+    @Test
+    public void testDataFilesAreShardedAndIdsChecked() {
+        TenantRegistry registry = new TenantRegistry(tempDir, 1);
+        Path file = registry.dataFileOf("alice");
+        assertEquals(tempDir, file.getParent().getParent());
+        assertEquals(2, file.getParent().getFileName().toString().length());
+        assertThrows(ChipException.class, () -> registry.acquire("../etc"));
+        assertThrows(ChipException.class, () -> registry.acquire(""));
+    }
+}
@@ -0,0 +1,144 @@
+package chip.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import chip.ChipException;
+import chip.task.Task;
+import chip.task.TaskList;
+import chip.task.Todo;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Test class for the key-value log backend.
+ * Tests per-task appends, reordering and recovery from a torn record.
+ */
+public class KeyValueStorageTest {
+
+    @TempDir
+    Path tempDir;
+
+    private String dataFile() {
+        return tempDir.resolve("chip.db").toString();
+    }
+
+    @Test
+    public void testChangesAreAppendedPerTask() throws ChipException, IOException {
+        KeyValueStorage storage = new KeyValueStorage(dataFile());
+        TaskList list = new TaskList();
+        for (int i = 1; i <= 4; i++) {
+            Task added = new Todo("Task " + i);
+            list.addTask(added);
+            storage.recordAdd(list.getTasks(), added);
+        }
+        long sizeAfterAdds = Files.size(Path.of(dataFile()));
+
+        list.markTask(2);
+        storage.recordMark(list.getTasks(), 2, true);
+        Task removed = list.deleteTask(0);
+        storage.recordDelete(list.getTasks(), 0, removed);
+        int[] indexes = {0, 2};
+        List<Task> removedTasks = list.deleteTasks(indexes);
+        storage.recordDelete(list.getTasks(), indexes, removedTasks);
+        assertTrue(Files.size(Path.of(dataFile())) - sizeAfterAdds < sizeAfterAdds);
+
+        List<Task> loaded = new KeyValueStorage(dataFile()).load();
+        assertEquals(1, loaded.size());
+        assertEquals("[T][X] Task 3", loaded.get(0).toString());
+        assertEquals(3, loaded.get(0).getId());
+    }
+
+    @Test
+    public void testSaveKeepsNewOrder() throws ChipException {
+        KeyValueStorage storage = new KeyValueStorage(dataFile());
+        TaskList list = new TaskList();
+        list.addTask(new Todo("b"));
+        list.addTask(new Todo("c"));
+        list.addTask(new Todo("a"));
+        storage.save(list.getTasks());
+
+        list.sortByDescription();
+        storage.save(list.getTasks());
+        list.markTask(0);
+        storage.recordMark(list.getTasks(), 0, true);
+
+        List<Task> loaded = new KeyValueStorage(dataFile()).load();
+        assertEquals("[T][X] a", loaded.get(0).toString());
+        assertEquals("[T][ ] b", loaded.get(1).toString());
+        assertEquals("[T][ ] c", loaded.get(2).toString());
+    }
+
+    @Test
+    public void testIdOfDeletedNewestTaskIsNotReused() throws ChipException {
+        KeyValueStorage storage = new KeyValueStorage(dataFile());
+        TaskList list = new TaskList();
+        for (int i = 1; i <= 3; i++) {
+            Task added = new Todo("Task " + i);
+            list.addTask(added);
+            storage.recordAdd(list.getTasks(), added);
+        }
+        Task removed = list.deleteTask(2);
+        storage.recordDelete(list.getTasks(), 2, removed);
+
+        KeyValueStorage reopened = new KeyValueStorage(dataFile());
+        list = new TaskList(reopened.load(), reopened.getNextId());
+        Task next = new Todo("Task 4");
+        list.addTask(next);
+        assertEquals(4, next.getId());
+
+        // Rewriting the log keeps a tombstone for the deleted newest task
+        removed = list.deleteTask(2);
+        reopened.recordDelete(list.getTasks(), 2, removed);
+        reopened.save(list.getTasks());
+        KeyValueStorage rewritten = new KeyValueStorage(dataFile());
+        list = new TaskList(rewritten.load(), rewritten.getNextId());
+        assertEquals(2, list.size());
+        next = new Todo("Task 5");
+        list.addTask(next);
+        assertEquals(5, next.getId());
+    }
+
+    @Test
+    public void testTornRecordIsDropped() throws ChipException, IOException {
+        KeyValueStorage storage = new KeyValueStorage(dataFile());
+        TaskList list = new TaskList();
+        Task added = new Todo("Task 1");
+        list.addTask(added);
+        storage.recordAdd(list.getTasks(), added);
+        storage.close();
+        long validLength = Files.size(Path.of(dataFile()));
+
+        // Simulate a crash halfway through appending a record
+        Files.write(Path.of(dataFile()), new byte[] {0, 1, 2, 3, 1, 0, 0}, StandardOpenOption.APPEND);
+
+        KeyValueStorage reopened = new KeyValueStorage(dataFile());
+        assertEquals(1, reopened.load().size());
+        assertEquals(validLength, Files.size(Path.of(dataFile())));
+    }
+
+    @Test
+    public void testCorruptedLengthDoesNotTruncateLog() throws ChipException, IOException {
+        KeyValueStorage storage = new KeyValueStorage(dataFile());
+        TaskList list = new TaskList();
+        for (int i = 1; i <= 3; i++) {
+            Task added = new Todo("Task " + i);
+            list.addTask(added);
+            storage.recordAdd(list.getTasks(), added);
+        }
+        storage.close();
+        long length = Files.size(Path.of(dataFile()));
+
+        // The value length of the first record follows its checksum, type, id and sequence number
+        byte[] bytes = Files.readAllBytes(Path.of(dataFile()));
+        bytes[17] = 0x7F;
+        Files.write(Path.of(dataFile()), bytes);
+
+        assertThrows(ChipException.class, () -> new KeyValueStorage(dataFile()).load());
+        assertEquals(length, Files.size(Path.of(dataFile())));
+    }
+}
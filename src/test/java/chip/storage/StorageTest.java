@@ -0,0 +1,425 @@
+package chip.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import chip.ChipException;
+import chip.task.Deadline;
+import chip.task.Event;
+import chip.task.Task;
+import chip.task.TaskList;
+import chip.task.Todo;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Test class for the Storage persistence functionality.
+ * Tests snapshot saving, journal replay and compaction.
+ */
+public class StorageTest {
+
+    @TempDir
+    Path tempDir;
+
+    private String dataFile() {
+        return tempDir.resolve("chip.txt").toString();
+    }
+
+    @Test
+    public void testSaveAndLoad() throws ChipException {
+        Storage storage = new Storage(dataFile());
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("Read book"));
+        tasks.add(new Todo("Write report"));
+        tasks.get(1).markAsDone();
+        storage.save(tasks);
+
+        ArrayList<Task> loaded = new Storage(dataFile()).load();
+        assertEquals(2, loaded.size());
+        assertEquals("[T][ ] Read book", loaded.get(0).toString());
+        assertEquals("[T][X] Write report", loaded.get(1).toString());
+    }
+
+    @Test
+    public void testJournalReplay() throws ChipException {
+        Storage storage = new Storage(dataFile(), true);
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("Task 1"));
+        tasks.add(new Todo("Task 2"));
+        storage.save(tasks);
+
+        Task added = new Todo("Task 3");
+        tasks.add(added);
+        storage.recordAdd(tasks, added);
+        tasks.get(2).markAsDone();
+        storage.recordMark(tasks, 2, true);
+        tasks.remove(0);
+        storage.recordDelete(tasks, 0);
+
+        assertTrue(new File(dataFile() + ".journal").exists());
+        ArrayList<Task> loaded = new Storage(dataFile(), true).load();
+        assertEquals(2, loaded.size());
+        assertEquals("[T][ ] Task 2", loaded.get(0).toString());
+        assertEquals("[T][X] Task 3", loaded.get(1).toString());
+    }
+
+    @Test
+    public void testCompactFoldsJournalIntoSnapshot() throws ChipException {
+        Storage storage = new Storage(dataFile(), true);
+        ArrayList<Task> tasks = new ArrayList<>();
+        Task added = new Todo("Task 1");
+        tasks.add(added);
+        storage.recordAdd(tasks, added);
+
+        storage.compact();
+
+        assertFalse(new File(dataFile() + ".journal").exists());
+        ArrayList<Task> loaded = new Storage(dataFile()).load();
+        assertEquals(1, loaded.size());
+        assertEquals("[T][ ] Task 1", loaded.get(0).toString());
+    }
+
+    @Test
+    public void testSaveLeavesNoTemporaryFile() throws ChipException {
+        Storage storage = new Storage(dataFile());
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("Task 1"));
+        storage.save(tasks);
+
+        assertTrue(new File(dataFile()).exists());
+        assertFalse(new File(dataFile() + ".tmp").exists());
+    }
+
+    @Test
+    public void testStaleJournalIsNotReplayed() throws ChipException, IOException {
+        Storage storage = new Storage(dataFile(), true);
+        ArrayList<Task> tasks = new ArrayList<>();
+        Task added = new Todo("Task 1");
+        tasks.add(added);
+        storage.recordAdd(tasks, added);
+        Path journal = Path.of(dataFile() + ".journal");
+        byte[] journalBytes = Files.readAllBytes(journal);
+
+        storage.compact();
+        // Simulate a crash between renaming the snapshot and removing the journal
+        Files.write(journal, journalBytes);
+
+        ArrayList<Task> loaded = new Storage(dataFile(), true).load();
+        assertEquals(1, loaded.size());
+    }
+
+    @Test
+    public void testGroupCommitSync() throws ChipException {
+        Storage storage = new Storage(dataFile(), true, new SyncPolicy(100, 0));
+        ArrayList<Task> tasks = new ArrayList<>();
+        Task added = new Todo("Task 1");
+        tasks.add(added);
+        storage.recordAdd(tasks, added);
+        storage.sync();
+
+        ArrayList<Task> loaded = new Storage(dataFile(), true).load();
+        assertEquals(1, loaded.size());
+    }
+
+    @Test
+    public void testWriteBehindFlush() throws ChipException {
+        Storage storage = new Storage(dataFile(), true, SyncPolicy.ALWAYS, true);
+        ArrayList<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Task added = new Todo("Task " + i);
+            tasks.add(added);
+            storage.recordAdd(tasks, added);
+        }
+        storage.flush();
+
+        ArrayList<Task> loaded = new Storage(dataFile(), true).load();
+        assertEquals(100, loaded.size());
+        assertEquals("[T][ ] Task 99", loaded.get(99).toString());
+        storage.close();
+    }
+
+    @Test
+    public void testWriteBehindSnapshotSupersedesQueuedRecords() throws ChipException {
+        Storage storage = new Storage(dataFile(), true, SyncPolicy.ALWAYS, true);
+        ArrayList<Task> tasks = new ArrayList<>();
+        Task added = new Todo("Task 1");
+        tasks.add(added);
+        storage.recordAdd(tasks, added);
+        storage.save(tasks);
+        storage.close();
+
+        ArrayList<Task> loaded = new Storage(dataFile(), true).load();
+        assertEquals(1, loaded.size());
+    }
+
+    @Test
+    public void testCloseKeepsShortJournalAndSharedScheduler() throws ChipException {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            Storage storage = new Storage(dataFile(), true, SyncPolicy.ALWAYS, false, scheduler);
+            ArrayList<Task> tasks = new ArrayList<>();
+            Task added = new Todo("Task 1");
+            tasks.add(added);
+            storage.recordAdd(tasks, added);
+            storage.close();
+
+            assertTrue(new File(dataFile() + ".journal").exists());
+            assertFalse(scheduler.isShutdown());
+            assertEquals(1, new Storage(dataFile(), true).load().size());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDatedTasksRoundTrip() throws ChipException {
+        Storage storage = new Storage(dataFile());
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Deadline("Submit report", "2024-12-31 1800"));
+        tasks.add(new Event("Team | sync", "2024-12-25 1400", "2024-12-25 1600"));
+        tasks.get(1).markAsDone();
+        storage.save(tasks);
+
+        ArrayList<Task> loaded = storage.load();
+        assertEquals(tasks.get(0).toString(), loaded.get(0).toString());
+        assertEquals(tasks.get(1).toString(), loaded.get(1).toString());
+        assertEquals(tasks.get(1).toFileString(), loaded.get(1).toFileString());
+    }
+
+    @Test
+    public void testForEachTaskStreamsSnapshotAndJournal() throws ChipException {
+        Storage storage = new Storage(dataFile(), true);
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("Task 1"));
+        storage.save(tasks);
+        Task added = new Todo("Task 2");
+        tasks.add(added);
+        storage.recordAdd(tasks, added);
+
+        ArrayList<String> streamed = new ArrayList<>();
+        new Storage(dataFile(), true).forEachTask(task -> streamed.add(task.toString()));
+        assertEquals(2, streamed.size());
+        assertEquals("[T][ ] Task 2", streamed.get(1));
+    }
+
+    @Test
+    public void testCorruptedDateIsRejected() throws IOException {
+        Files.writeString(Path.of(dataFile()), "D | 0 | Submit report | 2024-13-31 1800");
+        assertThrows(ChipException.class, () -> new Storage(dataFile()).load());
+    }
+
+    @Test
+    public void testParallelLoadPreservesOrder() throws ChipException, IOException {
+        StringBuilder content = new StringBuilder("# generation 1\n");
+        for (int i = 0; i < 1000; i++) {
+            content.append("T | ").append(i % 2).append(" | Task ").append(i).append("\r\n");
+        }
+        Files.writeString(Path.of(dataFile()), content.toString());
+
+        ArrayList<Task> loaded = ParallelTaskLoader.load(Path.of(dataFile()));
+        assertEquals(1000, loaded.size());
+        assertEquals("[T][ ] Task 0", loaded.get(0).toString());
+        assertEquals("[T][X] Task 999", loaded.get(999).toString());
+    }
+
+    @Test
+    public void testParallelLoadAcrossManySmallChunks() throws ChipException, IOException {
+        StringBuilder content = new StringBuilder("# generation 1\r\n");
+        for (int i = 0; i < 200; i++) {
+            content.append("T | ").append(i % 2).append(" | T\u00e2che ").append(i).append("\r\n");
+        }
+        Files.writeString(Path.of(dataFile()), content.toString());
+
+        // Small chunks put boundaries everywhere, including between a '\r' and its '\n'
+        for (int chunkSize = 1; chunkSize <= 40; chunkSize++) {
+            ArrayList<Task> loaded = ParallelTaskLoader.load(Path.of(dataFile()), chunkSize);
+            assertEquals(200, loaded.size());
+            for (int i = 0; i < 200; i++) {
+                String status = i % 2 == 1 ? "X" : " ";
+                assertEquals("[T][" + status + "] T\u00e2che " + i, loaded.get(i).toString());
+            }
+        }
+    }
+
+    @Test
+    public void testBinaryConversionRoundTrip() throws ChipException, IOException {
+        Storage storage = new Storage(dataFile());
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("Read book"));
+        tasks.add(new Deadline("Submit report", "2024-12-31 1800"));
+        tasks.add(new Event("Team meeting", "2024-12-25 1400", "2024-12-25 1600"));
+        tasks.get(2).markAsDone();
+        storage.save(tasks);
+
+        storage.convertTo(StorageFormat.BINARY);
+        assertTrue(BinaryTaskCodec.isBinary(Path.of(dataFile())));
+        ArrayList<Task> loaded = new Storage(dataFile()).load();
+        assertEquals(3, loaded.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).toFileString(), loaded.get(i).toFileString());
+        }
+
+        storage.convertTo(StorageFormat.TEXT);
+        assertFalse(BinaryTaskCodec.isBinary(Path.of(dataFile())));
+        assertEquals(3, new Storage(dataFile()).load().size());
+    }
+
+    @Test
+    public void testBinaryFileWithBadLengthIsCorrupted() throws ChipException, IOException {
+        Storage storage = new Storage(dataFile());
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("Read book"));
+        storage.save(tasks);
+        storage.convertTo(StorageFormat.BINARY);
+
+        // The description length of the first task follows the 21-byte header, its tag and its id
+        byte[] bytes = Files.readAllBytes(Path.of(dataFile()));
+        bytes[23] = 0x7F;
+        Files.write(Path.of(dataFile()), bytes);
+        assertThrows(ChipException.class, () -> new Storage(dataFile()).load());
+
+        bytes[23] = (byte) 0xFF;
+        bytes[24] = (byte) 0xFF;
+        bytes[25] = (byte) 0xFF;
+        bytes[26] = (byte) 0xFF;
+        bytes[27] = 0x0F;
+        Files.write(Path.of(dataFile()), bytes);
+        assertThrows(ChipException.class, () -> new Storage(dataFile()).load());
+    }
+
+    @Test
+    public void testBinaryFormatIsKeptOnSave() throws ChipException, IOException {
+        Storage storage = new Storage(dataFile());
+        storage.convertTo(StorageFormat.BINARY);
+
+        Storage reopened = new Storage(dataFile());
+        ArrayList<Task> tasks = reopened.load();
+        tasks.add(new Todo("Task 1"));
+        reopened.save(tasks);
+
+        assertEquals(StorageFormat.BINARY, reopened.getFormat());
+        assertTrue(BinaryTaskCodec.isBinary(Path.of(dataFile())));
+    }
+
+    @Test
+    public void testTaskIdsArePersisted() throws ChipException {
+        TaskList list = new TaskList();
+        list.addTask(new Todo("Task 1"));
+        list.addTask(new Deadline("Task 2", "2024-12-31 1800"));
+        list.addTask(new Todo("Task 3"));
+        list.deleteTask(0);
+
+        Storage storage = new Storage(dataFile(), true);
+        storage.save(list.getTasks());
+        Task added = new Todo("Task 4");
+        list.addTask(added);
+        storage.recordAdd(list.getTasks(), added);
+
+        ArrayList<Task> loaded = new Storage(dataFile(), true).load();
+        assertEquals(2, loaded.get(0).getId());
+        assertEquals(3, loaded.get(1).getId());
+        assertEquals(4, loaded.get(2).getId());
+
+        storage.convertTo(StorageFormat.BINARY);
+        loaded = new Storage(dataFile()).load();
+        assertEquals(4, loaded.get(2).getId());
+        Task next = new Todo("Task 5");
+        new TaskList(loaded).addTask(next);
+        assertEquals(5, next.getId());
+    }
+
+    @Test
+    public void testIdOfDeletedNewestTaskIsNotReused() throws ChipException {
+        for (boolean isJournaled : new boolean[] {false, true}) {
+            new File(dataFile()).delete();
+            Storage storage = new Storage(dataFile(), isJournaled);
+            TaskList list = new TaskList(storage.load(), storage.getNextId());
+            for (int i = 1; i <= 3; i++) {
+                Task added = new Todo("Task " + i);
+                list.addTask(added);
+                storage.recordAdd(list.getTasks(), added);
+            }
+            list.deleteTask(2);
+            storage.recordDelete(list.getTasks(), 2);
+
+            Storage reopened = new Storage(dataFile(), isJournaled);
+            list = new TaskList(reopened.load(), reopened.getNextId());
+            Task next = new Todo("Task 4");
+            list.addTask(next);
+            reopened.recordAdd(list.getTasks(), next);
+            assertEquals(4, next.getId());
+
+            // The next id survives compaction and conversion to the binary format
+            list.deleteTask(2);
+            reopened.recordDelete(list.getTasks(), 2);
+            reopened.compact();
+            reopened.convertTo(StorageFormat.BINARY);
+            Storage binary = new Storage(dataFile(), isJournaled);
+            list = new TaskList(binary.load(), binary.getNextId());
+            next = new Todo("Task 5");
+            list.addTask(next);
+            assertEquals(5, next.getId());
+            new File(dataFile() + ".journal").delete();
+        }
+    }
+
+    @Test
+    public void testFileWithoutIdsIsNumberedOnLoad() throws ChipException, IOException {
+        Files.writeString(Path.of(dataFile()), "T | 0 | Task 1\n7 | T | 1 | Task 2\nT | 0 | Task 3\n");
+
+        TaskList list = new TaskList(new Storage(dataFile()).load());
+        assertEquals(8, list.getTask(0).getId());
+        assertEquals(7, list.getTask(1).getId());
+        assertEquals(9, list.getTask(2).getId());
+    }
+
+    @Test
+    public void testBatchSavesOnceAtEnd() throws ChipException {
+        Storage storage = new Storage(dataFile());
+        ArrayList<Task> tasks = new ArrayList<>();
+        storage.beginBatch();
+        for (int i = 0; i < 3; i++) {
+            Task added = new Todo("Task " + i);
+            tasks.add(added);
+            storage.recordAdd(tasks, added);
+        }
+        assertFalse(new File(dataFile()).exists());
+        storage.endBatch(tasks);
+        assertEquals(3, new Storage(dataFile()).load().size());
+
+        storage.beginBatch();
+        tasks.remove(0);
+        storage.recordDelete(tasks, 0);
+        storage.abortBatch();
+        assertEquals(3, new Storage(dataFile()).load().size());
+    }
+
+    @Test
+    public void testBulkJournalReplay() throws ChipException {
+        Storage storage = new Storage(dataFile(), true);
+        TaskList list = new TaskList();
+        for (int i = 1; i <= 6; i++) {
+            list.addTask(new Todo("Task " + i));
+        }
+        storage.save(list.getTasks());
+
+        int[] marked = {1, 2, 4};
+        list.markTasks(marked);
+        storage.recordMark(list.getTasks(), marked, true);
+        int[] deleted = {0, 2, 5};
+        list.deleteTasks(deleted);
+        storage.recordDelete(list.getTasks(), deleted);
+
+        ArrayList<Task> loaded = new Storage(dataFile(), true).load();
+        assertEquals(3, loaded.size());
+        assertEquals("[T][X] Task 2", loaded.get(0).toString());
+        assertEquals("[T][ ] Task 4", loaded.get(1).toString());
+        assertEquals("[T][X] Task 5", loaded.get(2).toString());
+    }
+}